@@ -0,0 +1,58 @@
+package polsl.tsp.complex;
+
+/**
+ * Distance matrix backed by a flat array on the heap, holding either the full matrix or its upper
+ * triangle. The array is filled through {@link #set(int, int)} while the matrix is built, and
+ * never written afterwards.
+ */
+abstract class ArrayDistanceMatrix extends DistanceMatrix {
+
+    private final int[] rowStart;
+
+    /**
+     * @param size       Number of cities
+     * @param triangular Whether only the upper triangle is stored
+     */
+    ArrayDistanceMatrix(int size, boolean triangular) {
+        super(size);
+        if (triangular) {
+            // Row i holds n - i entries and starts at sum(n - k, k < i); rowStart[i] is shifted
+            // back by i so that the entry for (i, j) sits at rowStart[i] + j.
+            this.rowStart = new int[size];
+            long start = 0;
+            for (int i = 0; i < size; i++) {
+                rowStart[i] = Math.toIntExact(start - i);
+                start += size - i;
+            }
+        } else {
+            this.rowStart = null;
+        }
+    }
+
+    /**
+     * Stores the cost at a position of the backing array, used only while the matrix is built.
+     */
+    abstract void set(int index, int value);
+
+    /**
+     * @return Position of the cost from {@code from} to {@code to} in the backing array
+     */
+    final int index(int from, int to) {
+        if (rowStart == null) {
+            return from * size() + to;
+        }
+        return from <= to ? rowStart[from] + to : rowStart[to] + from;
+    }
+
+    /**
+     * @return Whether only the upper triangle is stored
+     */
+    final boolean isTriangular() {
+        return rowStart != null;
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return rowStart != null || super.isSymmetric();
+    }
+}
@@ -0,0 +1,84 @@
+package polsl.tsp.complex;
+
+/**
+ * {@link Tour} as an array of the cities in order, with the position of every city. Queries take
+ * O(1) and a reversal swaps the cities of the shorter side of the tour, up to n / 2 of them.
+ */
+public final class ArrayTour implements Tour {
+
+    private final int n;
+    private final int[] tour;
+    private final int[] position;
+
+    /**
+     * @param order Cities in tour order, each once
+     */
+    public ArrayTour(int[] order) {
+        this.n = order.length;
+        this.tour = order.clone();
+        this.position = new int[n];
+        for (int i = 0; i < n; i++) {
+            position[tour[i]] = i;
+        }
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int next(int city) {
+        int i = position[city] + 1;
+        return tour[i == n ? 0 : i];
+    }
+
+    @Override
+    public int previous(int city) {
+        int i = position[city];
+        return tour[i == 0 ? n - 1 : i - 1];
+    }
+
+    @Override
+    public boolean between(int a, int b, int c) {
+        int offsetB = position[b] - position[a];
+        int offsetC = position[c] - position[a];
+        return (offsetB < 0 ? offsetB + n : offsetB) <= (offsetC < 0 ? offsetC + n : offsetC);
+    }
+
+    @Override
+    public void reverse(int fromCity, int toCity) {
+        int from = position[fromCity];
+        int to = position[toCity];
+        int length = to - from;
+        if (length < 0) {
+            length += n;
+        }
+        length++;
+        if (2 * length > n) {
+            int swapped = from;
+            from = to + 1 == n ? 0 : to + 1;
+            to = swapped == 0 ? n - 1 : swapped - 1;
+            length = n - length;
+        }
+        for (int i = 0; i < length / 2; i++) {
+            int city = tour[from];
+            tour[from] = tour[to];
+            tour[to] = city;
+            position[tour[from]] = from;
+            position[tour[to]] = to;
+            from = from + 1 == n ? 0 : from + 1;
+            to = to == 0 ? n - 1 : to - 1;
+        }
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] order = new int[n];
+        int offset = position[0];
+        for (int i = 0; i < n; i++) {
+            order[i] = tour[(offset + i) % n];
+        }
+        return order;
+    }
+}
@@ -0,0 +1,600 @@
+package polsl.tsp.complex;
+
+import java.util.Arrays;
+
+/**
+ * Linear program {@code min c x} subject to {@code A x = b} and {@code l <= x <= u}, solved with
+ * the dual simplex method on an explicit dense basis inverse.
+ * <p>
+ * Every row owns a logical variable that starts out basic, so a basis exists from the first row
+ * on, and every variable has finite bounds. With all variables boxed any basis can be made dual
+ * feasible just by moving nonbasic variables to the bound matching the sign of their reduced
+ * cost, so each call to {@link #solve()} warm starts from the last basis with the dual simplex,
+ * whatever changed in between: new rows, new columns or new bounds.
+ * <p>
+ * New rows extend the basis inverse in O(m^2) per row, and rows whose logical is basic can be
+ * removed without touching the rest of it; the inverse is recomputed from scratch every
+ * {@link #REFACTOR_INTERVAL} pivots to keep rounding errors in check.
+ */
+class BoundedSimplex {
+
+    private static final double PRIMAL_TOLERANCE = 1e-7;
+    private static final double DUAL_TOLERANCE = 1e-9;
+    private static final double PIVOT_TOLERANCE = 1e-9;
+    private static final int REFACTOR_INTERVAL = 100;
+
+    private static final byte AT_LOWER = 0;
+    private static final byte AT_UPPER = 1;
+    private static final byte BASIC = 2;
+
+    private int variableCount;
+    private double[] cost = new double[16];
+    private double[] lower = new double[16];
+    private double[] upper = new double[16];
+    private double[] value = new double[16];
+    private double[] reducedCost = new double[16];
+    private double[] alpha = new double[16];
+    private byte[] status = new byte[16];
+    private int[][] entryRows = new int[16][];
+    private double[][] entryValues = new double[16][];
+    private int[] entryCount = new int[16];
+
+    private int rowCount;
+    private double[] rhs = new double[16];
+    private double[] dual = new double[16];
+    private int[] basis = new int[16];
+    private int[] logical = new int[16];
+    private double[][] inverse = new double[0][];
+    private int factoredRows;
+    private int updates;
+    private boolean refactorNeeded;
+
+    private int infeasiblePosition = -1;
+    private double infeasibleDirection;
+
+    /**
+     * Adds a column without entries, nonbasic at its lower bound.
+     *
+     * @return Index of the new variable
+     */
+    int addVariable(double cost, double lower, double upper) {
+        if (lower > upper) {
+            throw new IllegalArgumentException("Lower bound exceeds upper bound");
+        }
+        ensureVariableCapacity(variableCount + 1);
+        int variable = variableCount++;
+        this.cost[variable] = cost;
+        this.lower[variable] = lower;
+        this.upper[variable] = upper;
+        this.value[variable] = lower;
+        this.status[variable] = AT_LOWER;
+        this.entryRows[variable] = new int[4];
+        this.entryValues[variable] = new double[4];
+        this.entryCount[variable] = 0;
+        return variable;
+    }
+
+    /**
+     * Adds the row {@code a x + coefficient * logical = rhs}. The logical variable is created with
+     * the given bounds and becomes basic in the new row; entries for existing variables are added
+     * with {@link #addEntry(int, int, double)}.
+     *
+     * @return Index of the new row
+     */
+    int addRow(double rhs, double logicalCoefficient, double logicalLower, double logicalUpper) {
+        if (logicalCoefficient == 0) {
+            throw new IllegalArgumentException("Logical coefficient cannot be zero");
+        }
+        int row = rowCount++;
+        if (row == this.rhs.length) {
+            this.rhs = Arrays.copyOf(this.rhs, 2 * row);
+            this.dual = Arrays.copyOf(this.dual, 2 * row);
+            this.basis = Arrays.copyOf(this.basis, 2 * row);
+            this.logical = Arrays.copyOf(this.logical, 2 * row);
+        }
+        this.rhs[row] = rhs;
+        int variable = addVariable(0, logicalLower, logicalUpper);
+        addEntry(row, variable, logicalCoefficient);
+        status[variable] = BASIC;
+        basis[row] = variable;
+        logical[row] = variable;
+        return row;
+    }
+
+    void addEntry(int row, int variable, double coefficient) {
+        if (row < 0 || row >= rowCount || variable < 0 || variable >= variableCount) {
+            throw new IllegalArgumentException("No such row or variable");
+        }
+        int size = entryCount[variable];
+        if (size == entryRows[variable].length) {
+            entryRows[variable] = Arrays.copyOf(entryRows[variable], 2 * size);
+            entryValues[variable] = Arrays.copyOf(entryValues[variable], 2 * size);
+        }
+        entryRows[variable][size] = row;
+        entryValues[variable][size] = coefficient;
+        entryCount[variable] = size + 1;
+        if (row < factoredRows && status[variable] == BASIC) {
+            refactorNeeded = true;
+        }
+    }
+
+    void setBounds(int variable, double lower, double upper) {
+        if (lower > upper) {
+            throw new IllegalArgumentException("Lower bound exceeds upper bound");
+        }
+        this.lower[variable] = lower;
+        this.upper[variable] = upper;
+        if (status[variable] != BASIC) {
+            value[variable] = status[variable] == AT_UPPER ? upper : lower;
+        }
+    }
+
+    /**
+     * Whether the logical variable of a row is basic, so that the row can be removed.
+     */
+    boolean isLogicalBasic(int row) {
+        return status[logical[row]] == BASIC;
+    }
+
+    double logicalValue(int row) {
+        return value[logical[row]];
+    }
+
+    /**
+     * Removes rows whose logical variable is basic. Such a row is just dropped from the basis
+     * together with its logical, which leaves the remaining part of the basis inverse intact.
+     * The logicals stay behind as empty variables fixed at 0.
+     *
+     * @return New index of every old row, -1 for removed rows
+     */
+    int[] removeRows(boolean[] remove) {
+        factorize();
+        int[] newIndex = new int[rowCount];
+        boolean[] removedVariable = new boolean[variableCount];
+        int kept = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (remove[row] && status[logical[row]] != BASIC) {
+                throw new IllegalArgumentException("Row " + row + " has a nonbasic logical");
+            }
+            removedVariable[logical[row]] = remove[row];
+            newIndex[row] = remove[row] ? -1 : kept++;
+        }
+
+        // Basis positions of the kept variables, in their current order.
+        int[] keptPositions = new int[kept];
+        int count = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (!removedVariable[basis[i]]) {
+                keptPositions[count++] = i;
+            }
+        }
+
+        double[][] reduced = new double[inverse.length][];
+        for (int i = 0; i < kept; i++) {
+            double[] source = inverse[keptPositions[i]];
+            double[] target = new double[inverse.length];
+            for (int row = 0; row < rowCount; row++) {
+                if (newIndex[row] >= 0) {
+                    target[newIndex[row]] = source[row];
+                }
+            }
+            reduced[i] = target;
+        }
+        for (int i = kept; i < reduced.length; i++) {
+            reduced[i] = new double[inverse.length];
+        }
+        int[] newBasis = new int[basis.length];
+        for (int i = 0; i < kept; i++) {
+            newBasis[i] = basis[keptPositions[i]];
+        }
+        double[] newRhs = new double[rhs.length];
+        int[] newLogical = new int[logical.length];
+        for (int row = 0; row < rowCount; row++) {
+            if (newIndex[row] >= 0) {
+                newRhs[newIndex[row]] = rhs[row];
+                newLogical[newIndex[row]] = logical[row];
+            }
+        }
+
+        for (int j = 0; j < variableCount; j++) {
+            int size = 0;
+            for (int e = 0; e < entryCount[j]; e++) {
+                int row = newIndex[entryRows[j][e]];
+                if (row >= 0) {
+                    entryRows[j][size] = row;
+                    entryValues[j][size] = entryValues[j][e];
+                    size++;
+                }
+            }
+            entryCount[j] = size;
+        }
+        for (int row = 0; row < rowCount; row++) {
+            if (remove[row]) {
+                int variable = logical[row];
+                status[variable] = AT_LOWER;
+                lower[variable] = 0;
+                upper[variable] = 0;
+                value[variable] = 0;
+            }
+        }
+
+        infeasiblePosition = -1;
+        inverse = reduced;
+        basis = newBasis;
+        logical = newLogical;
+        rhs = newRhs;
+        dual = new double[rhs.length];
+        rowCount = kept;
+        factoredRows = kept;
+        return newIndex;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    double value(int variable) {
+        return value[variable];
+    }
+
+    double reducedCost(int variable) {
+        return reducedCost[variable];
+    }
+
+    double dual(int row) {
+        return dual[row];
+    }
+
+    double objective() {
+        double objective = 0;
+        for (int j = 0; j < variableCount; j++) {
+            objective += cost[j] * value[j];
+        }
+        return objective;
+    }
+
+    /**
+     * Proof of infeasibility after {@link #solve()} returned false: a row combination {@code r}
+     * such that only a column with {@code r a > 0}, added at its lower bound, could restore
+     * feasibility.
+     */
+    double[] farkasRay() {
+        if (infeasiblePosition < 0) {
+            throw new IllegalStateException("The last solve did not prove infeasibility");
+        }
+        double[] ray = new double[rowCount];
+        for (int k = 0; k < rowCount; k++) {
+            ray[k] = infeasibleDirection * inverse[infeasiblePosition][k];
+        }
+        return ray;
+    }
+
+    /**
+     * Re-optimizes from the current basis.
+     *
+     * @return true if an optimal solution was found, false if the program is infeasible
+     */
+    boolean solve() {
+        infeasiblePosition = -1;
+        factorize();
+        restart();
+
+        long limit = 50L * (rowCount + variableCount) + 10_000;
+        for (long iteration = 0; iteration < limit; iteration++) {
+            if (updates >= REFACTOR_INTERVAL) {
+                refactor();
+                restart();
+            }
+
+            int position = leavingPosition();
+            if (position < 0) {
+                computeReducedCosts();
+                return true;
+            }
+            int leaving = basis[position];
+            boolean toLower = value[leaving] < lower[leaving];
+            double direction = toLower ? -1 : 1;
+
+            int entering = enteringVariable(inverse[position], direction);
+            if (entering < 0) {
+                infeasiblePosition = position;
+                infeasibleDirection = direction;
+                return false;
+            }
+            pivot(position, entering, toLower ? lower[leaving] : upper[leaving]);
+        }
+        throw new IllegalStateException("Simplex did not converge within " + limit + " iterations");
+    }
+
+    /**
+     * Recomputes values and reduced costs and moves nonbasic variables to dual feasible bounds.
+     */
+    private void restart() {
+        computeReducedCosts();
+        for (int j = 0; j < variableCount; j++) {
+            if (status[j] == BASIC) {
+                continue;
+            }
+            if (reducedCost[j] < -DUAL_TOLERANCE) {
+                status[j] = AT_UPPER;
+            } else if (reducedCost[j] > DUAL_TOLERANCE) {
+                status[j] = AT_LOWER;
+            }
+            value[j] = status[j] == AT_UPPER ? upper[j] : lower[j];
+        }
+        computeBasicValues();
+    }
+
+    /**
+     * Basic variable furthest outside its bounds, or -1 if the basis is primal feasible.
+     */
+    private int leavingPosition() {
+        int position = -1;
+        double worst = PRIMAL_TOLERANCE;
+        for (int i = 0; i < rowCount; i++) {
+            int variable = basis[i];
+            double violation = Math.max(lower[variable] - value[variable], value[variable] - upper[variable]);
+            if (violation > worst) {
+                worst = violation;
+                position = i;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Harris ratio test: first the largest dual step allowed within the tolerance, then the
+     * candidate with the largest pivot element among those that fit in that step.
+     */
+    private int enteringVariable(double[] rho, double direction) {
+        double step = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < variableCount; j++) {
+            if (status[j] == BASIC) {
+                continue;
+            }
+            alpha[j] = dot(rho, j);
+            if (lower[j] == upper[j]) {
+                continue;
+            }
+            double a = direction * alpha[j];
+            if (status[j] == AT_LOWER && a > PIVOT_TOLERANCE) {
+                step = Math.min(step, (reducedCost[j] + DUAL_TOLERANCE) / a);
+            } else if (status[j] == AT_UPPER && a < -PIVOT_TOLERANCE) {
+                step = Math.min(step, (reducedCost[j] - DUAL_TOLERANCE) / a);
+            }
+        }
+
+        int entering = -1;
+        double largest = 0;
+        for (int j = 0; j < variableCount; j++) {
+            if (status[j] == BASIC || lower[j] == upper[j]) {
+                continue;
+            }
+            double a = direction * alpha[j];
+            boolean candidate = (status[j] == AT_LOWER && a > PIVOT_TOLERANCE)
+                    || (status[j] == AT_UPPER && a < -PIVOT_TOLERANCE);
+            if (candidate && reducedCost[j] / a <= step && Math.abs(a) > largest) {
+                largest = Math.abs(a);
+                entering = j;
+            }
+        }
+        return entering;
+    }
+
+    private void pivot(int position, int entering, double leavingValue) {
+        int leaving = basis[position];
+        double[] column = new double[rowCount];
+        int[] rows = entryRows[entering];
+        double[] values = entryValues[entering];
+        for (int e = 0; e < entryCount[entering]; e++) {
+            int k = rows[e];
+            double a = values[e];
+            for (int i = 0; i < rowCount; i++) {
+                column[i] += inverse[i][k] * a;
+            }
+        }
+        double pivot = column[position];
+
+        double theta = reducedCost[entering] / alpha[entering];
+        for (int j = 0; j < variableCount; j++) {
+            if (status[j] != BASIC) {
+                reducedCost[j] -= theta * alpha[j];
+            }
+        }
+        reducedCost[leaving] = -theta;
+        reducedCost[entering] = 0;
+
+        double step = (value[leaving] - leavingValue) / pivot;
+        for (int i = 0; i < rowCount; i++) {
+            value[basis[i]] -= column[i] * step;
+        }
+        value[entering] += step;
+        value[leaving] = leavingValue;
+
+        status[leaving] = leavingValue == lower[leaving] ? AT_LOWER : AT_UPPER;
+        status[entering] = BASIC;
+        basis[position] = entering;
+
+        double[] pivotRow = inverse[position];
+        for (int k = 0; k < rowCount; k++) {
+            pivotRow[k] /= pivot;
+        }
+        for (int i = 0; i < rowCount; i++) {
+            double factor = column[i];
+            if (i == position || factor == 0) {
+                continue;
+            }
+            double[] target = inverse[i];
+            for (int k = 0; k < rowCount; k++) {
+                target[k] -= factor * pivotRow[k];
+            }
+        }
+        updates++;
+    }
+
+    private double dot(double[] rowVector, int variable) {
+        double sum = 0;
+        int[] rows = entryRows[variable];
+        double[] values = entryValues[variable];
+        for (int e = 0; e < entryCount[variable]; e++) {
+            sum += rowVector[rows[e]] * values[e];
+        }
+        return sum;
+    }
+
+    private void computeBasicValues() {
+        double[] residual = Arrays.copyOf(rhs, rowCount);
+        for (int j = 0; j < variableCount; j++) {
+            if (status[j] == BASIC || value[j] == 0) {
+                continue;
+            }
+            int[] rows = entryRows[j];
+            double[] values = entryValues[j];
+            for (int e = 0; e < entryCount[j]; e++) {
+                residual[rows[e]] -= values[e] * value[j];
+            }
+        }
+        for (int i = 0; i < rowCount; i++) {
+            double sum = 0;
+            double[] inverseRow = inverse[i];
+            for (int k = 0; k < rowCount; k++) {
+                sum += inverseRow[k] * residual[k];
+            }
+            value[basis[i]] = sum;
+        }
+    }
+
+    private void computeReducedCosts() {
+        Arrays.fill(dual, 0, rowCount, 0);
+        for (int i = 0; i < rowCount; i++) {
+            double basicCost = cost[basis[i]];
+            if (basicCost == 0) {
+                continue;
+            }
+            double[] inverseRow = inverse[i];
+            for (int k = 0; k < rowCount; k++) {
+                dual[k] += basicCost * inverseRow[k];
+            }
+        }
+        for (int j = 0; j < variableCount; j++) {
+            reducedCost[j] = status[j] == BASIC ? 0 : cost[j] - dot(dual, j);
+        }
+    }
+
+    /**
+     * Brings the basis inverse up to date with the rows added since the last solve.
+     */
+    private void factorize() {
+        if (inverse.length < rowCount) {
+            double[][] grown = new double[Math.max(rowCount, 2 * inverse.length)][];
+            for (int i = 0; i < grown.length; i++) {
+                grown[i] = new double[grown.length];
+                if (i < inverse.length) {
+                    System.arraycopy(inverse[i], 0, grown[i], 0, factoredRows);
+                }
+            }
+            inverse = grown;
+        }
+        if (refactorNeeded) {
+            refactor();
+            return;
+        }
+
+        // The basis gains one logical per new row: B' = [[B, 0], [C, D]] with D diagonal, so the
+        // new rows of the inverse are -D^-1 C B^-1 next to D^-1.
+        for (int row = factoredRows; row < rowCount; row++) {
+            Arrays.fill(inverse[row], 0, rowCount, 0);
+        }
+        for (int i = 0; i < factoredRows; i++) {
+            int variable = basis[i];
+            int[] rows = entryRows[variable];
+            double[] values = entryValues[variable];
+            for (int e = entryCount[variable] - 1; e >= 0 && rows[e] >= factoredRows; e--) {
+                double[] target = inverse[rows[e]];
+                double[] source = inverse[i];
+                double factor = values[e];
+                for (int k = 0; k < factoredRows; k++) {
+                    target[k] -= factor * source[k];
+                }
+            }
+        }
+        for (int row = factoredRows; row < rowCount; row++) {
+            double coefficient = entryValues[logical[row]][0];
+            double[] target = inverse[row];
+            for (int k = 0; k < factoredRows; k++) {
+                target[k] /= coefficient;
+            }
+            target[row] = 1 / coefficient;
+        }
+        for (int i = 0; i < factoredRows; i++) {
+            Arrays.fill(inverse[i], factoredRows, rowCount, 0);
+        }
+        factoredRows = rowCount;
+    }
+
+    /**
+     * Inverts the basis matrix from scratch with Gauss-Jordan elimination and partial pivoting.
+     */
+    private void refactor() {
+        int m = rowCount;
+        double[][] matrix = new double[m][2 * m];
+        for (int i = 0; i < m; i++) {
+            int variable = basis[i];
+            for (int e = 0; e < entryCount[variable]; e++) {
+                matrix[entryRows[variable][e]][i] += entryValues[variable][e];
+            }
+            matrix[i][m + i] = 1;
+        }
+        for (int column = 0; column < m; column++) {
+            int best = column;
+            for (int r = column + 1; r < m; r++) {
+                if (Math.abs(matrix[r][column]) > Math.abs(matrix[best][column])) {
+                    best = r;
+                }
+            }
+            if (Math.abs(matrix[best][column]) < PIVOT_TOLERANCE) {
+                throw new IllegalStateException("Basis became singular");
+            }
+            double[] pivotRow = matrix[best];
+            matrix[best] = matrix[column];
+            matrix[column] = pivotRow;
+            double pivot = pivotRow[column];
+            for (int k = column; k < 2 * m; k++) {
+                pivotRow[k] /= pivot;
+            }
+            for (int r = 0; r < m; r++) {
+                double factor = matrix[r][column];
+                if (r == column || factor == 0) {
+                    continue;
+                }
+                double[] target = matrix[r];
+                for (int k = column; k < 2 * m; k++) {
+                    target[k] -= factor * pivotRow[k];
+                }
+            }
+        }
+        for (int i = 0; i < m; i++) {
+            System.arraycopy(matrix[i], m, inverse[i], 0, m);
+        }
+        factoredRows = m;
+        updates = 0;
+        refactorNeeded = false;
+    }
+
+    private void ensureVariableCapacity(int capacity) {
+        if (capacity <= cost.length) {
+            return;
+        }
+        int size = Math.max(capacity, 2 * cost.length);
+        cost = Arrays.copyOf(cost, size);
+        lower = Arrays.copyOf(lower, size);
+        upper = Arrays.copyOf(upper, size);
+        value = Arrays.copyOf(value, size);
+        reducedCost = Arrays.copyOf(reducedCost, size);
+        alpha = Arrays.copyOf(alpha, size);
+        status = Arrays.copyOf(status, size);
+        entryRows = Arrays.copyOf(entryRows, size);
+        entryValues = Arrays.copyOf(entryValues, size);
+        entryCount = Arrays.copyOf(entryCount, size);
+    }
+}
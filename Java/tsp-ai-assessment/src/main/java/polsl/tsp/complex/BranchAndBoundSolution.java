@@ -0,0 +1,313 @@
+package polsl.tsp.complex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact branch-and-bound solver. A search node is a partial tour starting in city 0, and a node
+ * is discarded as soon as its lower bound from {@link TourBounds} shows it cannot beat the best
+ * tour found so far. The search starts from an incumbent built by a {@link LocalSearchSolution}:
+ * the best nearest neighbour tour, improved with 2-opt and Or-opt.
+ * <p>
+ * Two strategies are available. Depth-first keeps only the current branch in memory. Best-first
+ * always expands the open node with the lowest bound; once the number of open nodes reaches the
+ * configured cap, new children are explored depth-first until that subtree is finished.
+ * <p>
+ * Ties are broken towards the lexicographically smallest tour, so the result does not depend on
+ * the strategy or on the order in which nodes are explored.
+ * <p>
+ * Long runs can be checkpointed: at the configured interval the open nodes and the incumbent are
+ * captured and written to a binary file by a background thread, so the search itself never waits
+ * for the disk. A snapshot that fails to write stops the search with an
+ * {@link UncheckedIOException} when the next one is due, or when the search completes. A
+ * checkpointed search also stops with an {@link IllegalStateException} when its thread is
+ * interrupted. A later run on the same graph and file continues from the last snapshot, and the
+ * file is deleted once the search completes.
+ */
+public class BranchAndBoundSolution implements TspAlgorithm {
+
+    public enum SearchStrategy {
+        DEPTH_FIRST,
+        BEST_FIRST
+    }
+
+    private static final int DEFAULT_MAX_OPEN_NODES = 1_000_000;
+    private static final TspAlgorithm INITIAL_TOUR = new LocalSearchSolution(
+            new MultiStartNearestNeighbourSolution(1, 0), new TwoOptImprover(), new OrOptImprover());
+
+    private final SearchStrategy strategy;
+    private final int maxOpenNodes;
+    private final Path checkpointFile;
+    private final long checkpointIntervalMillis;
+    private long nodeCount;
+
+    public BranchAndBoundSolution() {
+        this(SearchStrategy.DEPTH_FIRST, DEFAULT_MAX_OPEN_NODES);
+    }
+
+    /**
+     * @param strategy     Order in which open nodes are explored
+     * @param maxOpenNodes Maximum number of nodes kept in the best-first queue
+     */
+    public BranchAndBoundSolution(SearchStrategy strategy, int maxOpenNodes) {
+        this(strategy, maxOpenNodes, null, 0);
+    }
+
+    /**
+     * @param strategy                 Order in which open nodes are explored
+     * @param maxOpenNodes             Maximum number of nodes kept in the best-first queue
+     * @param checkpointFile           File the search is snapshotted to and resumed from, null to disable
+     * @param checkpointIntervalMillis Minimum time between two snapshots
+     */
+    public BranchAndBoundSolution(SearchStrategy strategy, int maxOpenNodes, Path checkpointFile, long checkpointIntervalMillis) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Search strategy cannot be null");
+        }
+        if (maxOpenNodes < 1) {
+            throw new IllegalArgumentException("Maximum number of open nodes must be positive");
+        }
+        if (checkpointFile != null && checkpointIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.strategy = strategy;
+        this.maxOpenNodes = maxOpenNodes;
+        this.checkpointFile = checkpointFile;
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+    }
+
+    /**
+     * @return Number of nodes expanded by the last call to {@link #solveTSP(int[][])}
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
+        nodeCount = 0;
+        if (n == 1) {
+            return new TspResult(new int[]{0}, 0);
+        }
+
+        int[] bestPath = initialTour(graph);
+        int bestCost = pathCost(graph, bestPath);
+        TourBounds bounds = createBounds(graph, bestCost);
+
+        Deque<Node> stack = new ArrayDeque<>();
+        PriorityQueue<Node> queue = new PriorityQueue<>(Node.BY_BOUND);
+        long fingerprint = graph.fingerprint();
+        SearchCheckpoint resumed = checkpointFile == null ? null : SearchCheckpoint.resume(checkpointFile, n, fingerprint);
+        if (resumed != null) {
+            if (isBetter(resumed.incumbent.getCost(), resumed.incumbent.getPath(), bestCost, bestPath)) {
+                bestPath = resumed.incumbent.getPath();
+                bestCost = resumed.incumbent.getCost();
+            }
+            nodeCount = resumed.nodeCount;
+            stack.addAll(Arrays.asList(resumed.stack));
+            queue.addAll(Arrays.asList(resumed.queue));
+        } else {
+            boolean[] rootVisited = new boolean[n];
+            rootVisited[0] = true;
+            int[] rootPath = {0};
+            Node root = new Node(rootPath, 0, bounds.lowerBound(rootPath, 1, 0, rootVisited));
+            if (strategy == SearchStrategy.BEST_FIRST) {
+                queue.add(root);
+            } else {
+                stack.push(root);
+            }
+        }
+
+        ExecutorService writer = checkpointFile == null ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "branch-and-bound-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<?> pendingWrite = null;
+            long nextCheckpoint = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMillis);
+
+            boolean[] visited = new boolean[n];
+            List<Node> children = new ArrayList<>();
+            while (!stack.isEmpty() || !queue.isEmpty()) {
+                if (writer != null) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new IllegalStateException("Interrupted, call solveTSP again to resume from the last checkpoint");
+                    }
+                    if (System.nanoTime() >= nextCheckpoint && (pendingWrite == null || pendingWrite.isDone())) {
+                        if (pendingWrite != null) {
+                            checkWritten(pendingWrite);
+                        }
+                        // Only references are copied here; encoding and disk I/O happen on the writer thread.
+                        SearchCheckpoint snapshot = new SearchCheckpoint(n, fingerprint, nodeCount, new TspResult(bestPath, bestCost),
+                                stack.toArray(new Node[0]), queue.toArray(new Node[0]));
+                        pendingWrite = writer.submit(() -> snapshot.save(checkpointFile));
+                        nextCheckpoint = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMillis);
+                    }
+                }
+
+                Node node = stack.isEmpty() ? queue.poll() : stack.pop();
+                if (!canImprove(node, bestCost, bestPath)) {
+                    continue;
+                }
+                nodeCount++;
+
+                children.clear();
+                Arrays.fill(visited, false);
+                for (int city : node.path) {
+                    visited[city] = true;
+                }
+                int depth = node.path.length;
+                int last = node.path[depth - 1];
+                for (int city = 1; city < n; city++) {
+                    if (visited[city]) {
+                        continue;
+                    }
+                    int[] childPath = Arrays.copyOf(node.path, depth + 1);
+                    childPath[depth] = city;
+                    int childCost = node.cost + graph.get(last, city);
+
+                    if (depth + 1 == n) {
+                        int tourCost = childCost + graph.get(city, 0);
+                        int[] tour = Arrays.copyOf(childPath, n + 1);
+                        if (isBetter(tourCost, tour, bestCost, bestPath)) {
+                            bestCost = tourCost;
+                            bestPath = tour;
+                        }
+                        continue;
+                    }
+
+                    visited[city] = true;
+                    Node child = new Node(childPath, childCost, bounds.lowerBound(childPath, depth + 1, childCost, visited));
+                    visited[city] = false;
+                    if (canImprove(child, bestCost, bestPath)) {
+                        children.add(child);
+                    }
+                }
+
+                if (strategy == SearchStrategy.BEST_FIRST && queue.size() + children.size() <= maxOpenNodes) {
+                    queue.addAll(children);
+                } else {
+                    // Push the most promising child last so that it is explored first.
+                    children.sort(Node.BY_BOUND.reversed());
+                    for (Node child : children) {
+                        stack.push(child);
+                    }
+                }
+            }
+
+            if (writer != null) {
+                finishCheckpoints(writer, pendingWrite);
+            }
+        } finally {
+            if (writer != null) {
+                SearchCheckpoint.shutdown(writer);
+            }
+        }
+        return new TspResult(bestPath, bestCost);
+    }
+
+    /**
+     * Rethrows the failure of a finished snapshot write.
+     */
+    private static void checkWritten(Future<?> write) {
+        try {
+            write.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw new IllegalStateException("Checkpoint could not be written", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for a snapshot still being written, then removes the checkpoint of the finished search.
+     */
+    private void finishCheckpoints(ExecutorService writer, Future<?> pendingWrite) {
+        SearchCheckpoint.shutdown(writer);
+        if (pendingWrite != null) {
+            checkWritten(pendingWrite);
+        }
+        try {
+            Files.deleteIfExists(checkpointFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Checkpoint could not be deleted: " + checkpointFile, e);
+        }
+    }
+
+    /**
+     * Builds the bounds for a search, computing Held-Karp penalties when the matrix is symmetric.
+     */
+    static TourBounds createBounds(DistanceMatrix graph, int upperBound) {
+        boolean symmetric = graph.isSymmetric();
+        double[] penalties = symmetric ? TourBounds.heldKarpPenalties(graph, upperBound) : null;
+        return new TourBounds(graph, symmetric, penalties);
+    }
+
+    /**
+     * A node is worth exploring if its bound is below the incumbent, or equal to it while its
+     * prefix could still lead to a lexicographically smaller tour. A prefix equal to the
+     * incumbent's may, since the incumbent is only one of its completions.
+     */
+    static boolean canImprove(Node node, int bestCost, int[] bestPath) {
+        if (node.bound != bestCost) {
+            return node.bound < bestCost;
+        }
+        return Arrays.compare(node.path, 0, node.path.length, bestPath, 0, node.path.length) <= 0;
+    }
+
+    static boolean isBetter(int cost, int[] path, int bestCost, int[] bestPath) {
+        return cost < bestCost || (cost == bestCost && Arrays.compare(path, bestPath) < 0);
+    }
+
+    /**
+     * Best nearest neighbour tour over all start cities, rotated to start in 0 and improved with
+     * 2-opt, which leaves tours of asymmetric matrices unchanged, and Or-opt.
+     */
+    static int[] initialTour(DistanceMatrix graph) {
+        return INITIAL_TOUR.solveTSP(graph).getPath();
+    }
+
+    static int pathCost(DistanceMatrix graph, int[] path) {
+        int cost = 0;
+        for (int i = 0; i < path.length - 1; i++) {
+            cost += graph.get(path[i], path[i + 1]);
+        }
+        return cost;
+    }
+
+    /**
+     * Partial tour together with its cost and lower bound.
+     */
+    static class Node {
+        static final Comparator<Node> BY_BOUND = Comparator.<Node>comparingInt(node -> node.bound)
+                .thenComparingInt(node -> -node.path.length);
+
+        final int[] path;
+        final int cost;
+        final int bound;
+
+        Node(int[] path, int cost, int bound) {
+            this.path = path;
+            this.cost = cost;
+            this.bound = bound;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package polsl.tsp.complex;
+
+import java.util.Arrays;
+
+/**
+ * Short list of promising neighbours for every city, so that construction and improvement
+ * heuristics can try a few candidates per city instead of scanning whole rows of the matrix.
+ * The lists of all cities are stored back to back in one flat {@code int[]}, with the list of
+ * city {@code i} starting at {@code start[i]}, and each list is sorted by increasing cost.
+ * <p>
+ * For a {@link CoordinateDistanceMatrix} the lists are found with a {@link KdTree} in O(n log n)
+ * time: in the plane for the planar metrics, and on the unit sphere for {@link
+ * CoordinateDistanceMatrix.Metric#GEO}. As costs are rounded, cities at the same cost may be
+ * missing from a list that holds some of them. Any other matrix is scanned row by row in
+ * O(n^2 log k) time, by the cost of leaving each city, or column by column for the lists by the
+ * cost of reaching each city.
+ */
+public final class CandidateLists {
+
+    private final int[] start;
+    private final int[] neighbours;
+
+    private CandidateLists(int[] start, int[] neighbours) {
+        this.start = start;
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Builds the lists of the {@code k} nearest neighbours of every city, by the cost of going
+     * from the city to the neighbour.
+     *
+     * @throws IllegalArgumentException if {@code k} is not positive
+     */
+    public static CandidateLists nearest(DistanceMatrix graph, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of neighbours must be positive, got " + k);
+        }
+        if (graph instanceof CoordinateDistanceMatrix) {
+            return of((CoordinateDistanceMatrix) graph, k, 0);
+        }
+        return scan(graph, k, false);
+    }
+
+    /**
+     * Builds the lists of the {@code k} nearest neighbours of every city, by the cost of coming
+     * from the neighbour to the city. These differ from {@link #nearest} only on asymmetric
+     * matrices, whose columns are scanned.
+     *
+     * @throws IllegalArgumentException if {@code k} is not positive
+     */
+    public static CandidateLists nearestIncoming(DistanceMatrix graph, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of neighbours must be positive, got " + k);
+        }
+        if (graph instanceof CoordinateDistanceMatrix) {
+            return of((CoordinateDistanceMatrix) graph, k, 0);
+        }
+        return scan(graph, k, true);
+    }
+
+    private static CandidateLists scan(DistanceMatrix graph, int k, boolean incoming) {
+        int n = graph.size();
+        k = Math.min(k, n - 1);
+        int[] start = new int[n + 1];
+        int[] neighbours = new int[Math.toIntExact((long) n * k)];
+        int[] heap = new int[k];
+        int[] costs = new int[k];
+        for (int city = 0; city < n; city++) {
+            int count = 0;
+            for (int other = 0; other < n; other++) {
+                int cost = incoming ? graph.get(other, city) : graph.get(city, other);
+                // Most cities cost more than the worst one kept; skip them without a call.
+                if (other != city && (count < k || cost < costs[0])) {
+                    count = offer(heap, costs, count, other, cost);
+                }
+            }
+            sortByCost(graph, city, heap, costs, count, incoming);
+            System.arraycopy(heap, 0, neighbours, start[city], count);
+            start[city + 1] = start[city] + count;
+        }
+        return new CandidateLists(start, neighbours);
+    }
+
+    /**
+     * Builds the lists of the {@code k} nearest neighbours of every city, together with the
+     * {@code perQuadrant} nearest neighbours in each of the four quadrants around it. The
+     * quadrant neighbours link cities on the edge of a cluster to the next cluster, which the
+     * nearest neighbours alone often miss.
+     *
+     * @throws IllegalArgumentException if {@code k} is not positive, {@code perQuadrant} is
+     *                                  negative, or the metric is not planar
+     */
+    public static CandidateLists quadrant(CoordinateDistanceMatrix graph, int k, int perQuadrant) {
+        if (k < 1 || perQuadrant < 0) {
+            throw new IllegalArgumentException("Invalid number of neighbours: " + k + " nearest, " + perQuadrant + " per quadrant");
+        }
+        if (graph.getMetric() == CoordinateDistanceMatrix.Metric.GEO) {
+            throw new IllegalArgumentException("Quadrants are only defined for planar metrics");
+        }
+        return of(graph, k, perQuadrant);
+    }
+
+    private static CandidateLists of(CoordinateDistanceMatrix graph, int k, int perQuadrant) {
+        return of(graph, graph.spatialIndex(), k, perQuadrant);
+    }
+
+    /**
+     * Builds the candidate lists of a coordinate matrix with its {@link
+     * CoordinateDistanceMatrix#spatialIndex() spatial index}.
+     */
+    static CandidateLists of(CoordinateDistanceMatrix graph, KdTree tree, int k, int perQuadrant) {
+        int n = graph.size();
+        int capacity = Math.min(k + 4 * perQuadrant, n - 1);
+        int[] start = new int[n + 1];
+        int[] neighbours = new int[Math.toIntExact((long) n * capacity)];
+        int[] found = new int[Math.max(k, perQuadrant)];
+        int[] list = new int[capacity];
+        int[] costs = new int[capacity];
+        int[] counts = new int[n];
+        for (int position = 0; position < n; position++) {
+            // Nearby cities one after another keep the tree nodes and coordinates in the cache.
+            int city = tree.pointAt(position);
+            int count = 0;
+            int nearest = tree.nearest(city, k, found);
+            for (int i = 0; i < nearest; i++) {
+                list[count++] = found[i];
+            }
+            for (int quadrant = 0; quadrant < 4 && perQuadrant > 0; quadrant++) {
+                int inQuadrant = tree.nearestInQuadrant(city, quadrant, perQuadrant, found);
+                for (int i = 0; i < inQuadrant; i++) {
+                    if (!contains(list, count, found[i])) {
+                        list[count++] = found[i];
+                    }
+                }
+            }
+            sortByCost(graph, city, list, costs, count, false);
+            System.arraycopy(list, 0, neighbours, city * capacity, count);
+            counts[city] = count;
+        }
+        // Close the gaps left by cities with fewer candidates than the capacity.
+        for (int city = 0; city < n; city++) {
+            System.arraycopy(neighbours, city * capacity, neighbours, start[city], counts[city]);
+            start[city + 1] = start[city] + counts[city];
+        }
+        return new CandidateLists(start, Arrays.copyOf(neighbours, start[n]));
+    }
+
+    private static boolean contains(int[] list, int count, int city) {
+        for (int i = 0; i < count; i++) {
+            if (list[i] == city) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Insertion sort of a short list of cities by their cost from {@code from}, or to it if
+     * {@code incoming}, then by index.
+     *
+     * @param costs Scratch space, at least as long as the list
+     */
+    private static void sortByCost(DistanceMatrix graph, int from, int[] cities, int[] costs, int count, boolean incoming) {
+        for (int i = 0; i < count; i++) {
+            int city = cities[i];
+            int cost = incoming ? graph.get(city, from) : graph.get(from, city);
+            int j = i;
+            while (j > 0 && (costs[j - 1] > cost || (costs[j - 1] == cost && cities[j - 1] > city))) {
+                cities[j] = cities[j - 1];
+                costs[j] = costs[j - 1];
+                j--;
+            }
+            cities[j] = city;
+            costs[j] = cost;
+        }
+    }
+
+    /**
+     * Adds a city to a bounded max-heap of the cheapest cities, ordered by cost and then by index.
+     * Cities are offered in increasing index order, so a city costing as much as the worst one
+     * kept is never better.
+     *
+     * @return New number of cities in the heap
+     */
+    private static int offer(int[] heap, int[] costs, int count, int city, int cost) {
+        if (count < heap.length) {
+            int i = count++;
+            while (i > 0 && costs[(i - 1) / 2] <= cost) {
+                heap[i] = heap[(i - 1) / 2];
+                costs[i] = costs[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = city;
+            costs[i] = cost;
+        } else if (cost < costs[0]) {
+            int i = 0;
+            while (2 * i + 1 < count) {
+                int child = 2 * i + 1;
+                if (child + 1 < count && (costs[child + 1] > costs[child]
+                        || (costs[child + 1] == costs[child] && heap[child + 1] > heap[child]))) {
+                    child++;
+                }
+                if (costs[child] < cost || (costs[child] == cost && heap[child] < city)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                costs[i] = costs[child];
+                i = child;
+            }
+            heap[i] = city;
+            costs[i] = cost;
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of cities
+     */
+    public int size() {
+        return start.length - 1;
+    }
+
+    /**
+     * @return Number of candidates of a city
+     */
+    public int count(int city) {
+        return start[city + 1] - start[city];
+    }
+
+    /**
+     * @return Candidate of a city at the given rank, 0 being the cheapest
+     */
+    public int get(int city, int rank) {
+        return neighbours[start[city] + rank];
+    }
+}
@@ -0,0 +1,24 @@
+package polsl.tsp.complex;
+
+/**
+ * Distance matrix storing costs in 0..65535 as {@code char}, read back without any decoding.
+ */
+final class CharDistanceMatrix extends ArrayDistanceMatrix {
+
+    private final char[] distances;
+
+    CharDistanceMatrix(int size, boolean triangular, int entries) {
+        super(size, triangular);
+        this.distances = new char[entries];
+    }
+
+    @Override
+    public int get(int from, int to) {
+        return distances[index(from, to)];
+    }
+
+    @Override
+    void set(int index, int value) {
+        distances[index] = (char) value;
+    }
+}
@@ -8,12 +8,8 @@ import java.util.Arrays;
 public class ComplexClaudeSolution implements TspAlgorithm {
 
     @Override
-    public TspResult solveTSP(int[][] graph) {
-        if (graph == null || graph.length == 0) {
-            throw new IllegalArgumentException("Graph cannot be null or empty");
-        }
-
-        int n = graph.length;
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
 
         // If only one city, return path with just that city
         if (n == 1) {
@@ -35,14 +31,14 @@ public class ComplexClaudeSolution implements TspAlgorithm {
         for (int i = 1; i < n; i++) {
             int nextCity = findNearestCity(graph, currentCity, visited);
             path[i] = nextCity;
-            totalCost += graph[currentCity][nextCity];
+            totalCost += graph.get(currentCity, nextCity);
             visited[nextCity] = true;
             currentCity = nextCity;
         }
 
         // Return to the starting city to complete the tour
         path[n] = path[0];
-        totalCost += graph[currentCity][path[0]];
+        totalCost += graph.get(currentCity, path[0]);
 
         return new TspResult(path, totalCost);
     }
@@ -55,8 +51,8 @@ public class ComplexClaudeSolution implements TspAlgorithm {
      * @param visited     Array indicating which cities have been visited
      * @return The index of the nearest unvisited city
      */
-    private int findNearestCity(int[][] graph, int currentCity, boolean[] visited) {
-        int n = graph.length;
+    private int findNearestCity(DistanceMatrix graph, int currentCity, boolean[] visited) {
+        int n = graph.size();
         int nearestCity = -1;
         int shortestDistance = Integer.MAX_VALUE;
 
@@ -67,8 +63,8 @@ public class ComplexClaudeSolution implements TspAlgorithm {
             }
 
             // Check if this city is closer than the current nearest
-            if (graph[currentCity][i] < shortestDistance) {
-                shortestDistance = graph[currentCity][i];
+            if (graph.get(currentCity, i) < shortestDistance) {
+                shortestDistance = graph.get(currentCity, i);
                 nearestCity = i;
             }
         }
@@ -3,12 +3,8 @@ package polsl.tsp.complex;
 public class ComplexDeepSeekNNSolution implements TspAlgorithm {
 
     @Override
-    public TspResult solveTSP(int[][] graph) {
-        if (graph == null || graph.length == 0 || graph.length != graph[0].length) {
-            throw new IllegalArgumentException("Invalid graph input");
-        }
-
-        int n = graph.length;
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
         if (n == 1) {
             return new TspResult(new int[]{0}, 0);
         }
@@ -24,26 +20,26 @@ public class ComplexDeepSeekNNSolution implements TspAlgorithm {
 
         for (int i = 1; i < n; i++) {
             int nextCity = findNearestUnvisitedCity(currentCity, graph, visited);
-            totalCost += graph[currentCity][nextCity];
+            totalCost += graph.get(currentCity, nextCity);
             path[i] = nextCity;
             visited[nextCity] = true;
             currentCity = nextCity;
         }
 
         // Return to starting city
-        totalCost += graph[currentCity][0];
+        totalCost += graph.get(currentCity, 0);
         path[n] = 0;
 
         return new TspResult(path, totalCost);
     }
 
-    private int findNearestUnvisitedCity(int currentCity, int[][] graph, boolean[] visited) {
+    private int findNearestUnvisitedCity(int currentCity, DistanceMatrix graph, boolean[] visited) {
         int minDistance = Integer.MAX_VALUE;
         int nearestCity = -1;
 
-        for (int i = 0; i < graph.length; i++) {
-            if (!visited[i] && graph[currentCity][i] < minDistance) {
-                minDistance = graph[currentCity][i];
+        for (int i = 0; i < graph.size(); i++) {
+            if (!visited[i] && graph.get(currentCity, i) < minDistance) {
+                minDistance = graph.get(currentCity, i);
                 nearestCity = i;
             }
         }
@@ -5,12 +5,8 @@ import java.util.Arrays;
 public class ComplexTabnineSolution implements TspAlgorithm {
 
     @Override
-    public TspResult solveTSP(int[][] graph) {
-        if (graph == null || graph.length == 0 || graph[0].length != graph.length) {
-            throw new IllegalArgumentException("Invalid graph input");
-        }
-
-        int n = graph.length;
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
         int[] path = new int[n + 1];
         boolean[] visited = new boolean[n];
         int totalCost = 0;
@@ -23,25 +19,25 @@ public class ComplexTabnineSolution implements TspAlgorithm {
         for (int i = 1; i < n; i++) {
             int nearestCity = findNearestUnvisitedCity(currentCity, graph, visited);
             path[i] = nearestCity;
-            totalCost += graph[currentCity][nearestCity];
+            totalCost += graph.get(currentCity, nearestCity);
             visited[nearestCity] = true;
             currentCity = nearestCity;
         }
 
         // Return to the starting city
         path[n] = 0;
-        totalCost += graph[currentCity][0];
+        totalCost += graph.get(currentCity, 0);
 
         return new TspResult(path, totalCost);
     }
 
-    private int findNearestUnvisitedCity(int currentCity, int[][] graph, boolean[] visited) {
+    private int findNearestUnvisitedCity(int currentCity, DistanceMatrix graph, boolean[] visited) {
         int nearestCity = -1;
         int minDistance = Integer.MAX_VALUE;
 
-        for (int i = 0; i < graph.length; i++) {
-            if (!visited[i] && graph[currentCity][i] < minDistance) {
-                minDistance = graph[currentCity][i];
+        for (int i = 0; i < graph.size(); i++) {
+            if (!visited[i] && graph.get(currentCity, i) < minDistance) {
+                minDistance = graph.get(currentCity, i);
                 nearestCity = i;
             }
         }
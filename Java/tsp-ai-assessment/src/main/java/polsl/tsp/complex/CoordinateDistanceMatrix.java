@@ -0,0 +1,350 @@
+package polsl.tsp.complex;
+
+import java.util.Arrays;
+
+/**
+ * Distance matrix computed on demand from city coordinates, so an instance of n cities takes O(n)
+ * memory instead of O(n^2). Distances are rounded to integers following the TSPLIB conventions of
+ * the chosen {@link Metric}; the distance from a city to itself is 0.
+ * <p>
+ * Optionally, hot rows are kept in a bounded LRU cache, which pays off when the same costs are
+ * read over and over, e.g. when neighbour lists are sorted, and more so for the trigonometry of
+ * {@link Metric#GEO}. A cost whose row is not cached is read from the cached row of the other
+ * city if there is one, since all metrics are symmetric. Otherwise it is computed, and once a row
+ * has been read n/8 times since it last left the cache it is admitted, evicting the least recently
+ * used row when {@code cachedRows} rows are held. Admitting a row clears it and its costs are
+ * computed when first read, so clearing costs at most 8 writes per read on average, and rows read
+ * only a few times, as when a tour's cost is summed, never enter the cache. The memory stays at
+ * {@code cachedRows * n} costs.
+ * <p>
+ * The cache is not synchronised, so it only serves the thread that created the instance; other
+ * threads compute every distance they read, which keeps instances safe to share with parallel
+ * solvers.
+ */
+public final class CoordinateDistanceMatrix extends DistanceMatrix {
+
+    /**
+     * Distance functions of TSPLIB, all symmetric.
+     */
+    public enum Metric {
+        /**
+         * Euclidean distance rounded to the nearest integer.
+         */
+        EUC_2D,
+        /**
+         * Euclidean distance rounded up.
+         */
+        CEIL_2D,
+        /**
+         * Great-circle distance in kilometres on an idealised Earth, with coordinates given as
+         * latitude and longitude in DDD.MM format (degrees and minutes).
+         */
+        GEO,
+        /**
+         * Pseudo-Euclidean distance of the ATT instances.
+         */
+        ATT
+    }
+
+    private static final double PI = 3.141592;
+    private static final double EARTH_RADIUS = 6378.388;
+    private static final int NONE = -1;
+    private static final int UNKNOWN = -1;
+    private static final int ADMISSION_DIVISOR = 8;
+
+    private final double[] x;
+    private final double[] y;
+    private final Metric metric;
+
+    private final Thread owner;
+    private final int[][] rows;
+    private final int[] rowCity;
+    private final int[] citySlot;
+    private final int[] reads;
+    private final int admission;
+    private final int[] newer;
+    private final int[] older;
+    private int newest = NONE;
+    private int oldest = NONE;
+    private int usedSlots;
+
+    /**
+     * Creates a matrix that computes every distance when it is read.
+     *
+     * @throws IllegalArgumentException if the coordinates are null, empty or of different lengths
+     */
+    public CoordinateDistanceMatrix(double[] x, double[] y, Metric metric) {
+        this(x, y, metric, 0);
+    }
+
+    /**
+     * @param x          First coordinate of every city, the latitude for {@link Metric#GEO}
+     * @param y          Second coordinate of every city, the longitude for {@link Metric#GEO}
+     * @param metric     Distance function
+     * @param cachedRows Number of rows kept in the LRU cache, 0 to compute every distance when it
+     *                   is read
+     * @throws IllegalArgumentException if the coordinates are null, empty or of different lengths,
+     *                                  the metric is null or the cache size is negative
+     */
+    public CoordinateDistanceMatrix(double[] x, double[] y, Metric metric, int cachedRows) {
+        this(x, y, metric, cachedRows, false);
+    }
+
+    /**
+     * @param radians Whether {@link Metric#GEO} coordinates are already converted to radians, as
+     *                returned by {@link #x()} and {@link #y()}
+     */
+    CoordinateDistanceMatrix(double[] x, double[] y, Metric metric, int cachedRows, boolean radians) {
+        super(checkedSize(x, y));
+        if (metric == null) {
+            throw new IllegalArgumentException("Metric cannot be null");
+        }
+        if (cachedRows < 0) {
+            throw new IllegalArgumentException("Number of cached rows cannot be negative, got " + cachedRows);
+        }
+        this.metric = metric;
+        boolean convert = metric == Metric.GEO && !radians;
+        this.x = convert ? toRadians(x) : x.clone();
+        this.y = convert ? toRadians(y) : y.clone();
+
+        int slots = Math.min(cachedRows, x.length);
+        this.owner = Thread.currentThread();
+        this.rows = new int[slots][];
+        this.rowCity = new int[slots];
+        this.newer = new int[slots];
+        this.older = new int[slots];
+        this.citySlot = new int[slots > 0 ? x.length : 0];
+        this.reads = new int[citySlot.length];
+        this.admission = x.length / ADMISSION_DIVISOR + 1;
+        Arrays.fill(citySlot, NONE);
+    }
+
+    private static int checkedSize(double[] x, double[] y) {
+        if (x == null || y == null || x.length == 0) {
+            throw new IllegalArgumentException("Coordinates cannot be null or empty");
+        }
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Both coordinates must be given for every city");
+        }
+        return x.length;
+    }
+
+    /**
+     * Converts TSPLIB DDD.MM coordinates to radians.
+     */
+    private static double[] toRadians(double[] coordinates) {
+        double[] radians = new double[coordinates.length];
+        for (int i = 0; i < coordinates.length; i++) {
+            int degrees = (int) coordinates[i];
+            double minutes = coordinates[i] - degrees;
+            radians[i] = PI * (degrees + 5.0 * minutes / 3.0) / 180.0;
+        }
+        return radians;
+    }
+
+    /**
+     * @return Distance function of this matrix
+     */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * @return First coordinate of every city as used for the distances, in radians for
+     * {@link Metric#GEO}; not a copy, so it must not be modified
+     */
+    double[] x() {
+        return x;
+    }
+
+    /**
+     * @return Second coordinate of every city as used for the distances, in radians for
+     * {@link Metric#GEO}; not a copy, so it must not be modified
+     */
+    double[] y() {
+        return y;
+    }
+
+    @Override
+    public int get(int from, int to) {
+        if (rows.length == 0 || Thread.currentThread() != owner) {
+            return distance(from, to);
+        }
+        return cached(from, to);
+    }
+
+    private int cached(int from, int to) {
+        int slot = citySlot[from];
+        if (slot == NONE) {
+            int mirror = citySlot[to];
+            if (mirror != NONE && rows[mirror][from] != UNKNOWN) {
+                return rows[mirror][from];
+            }
+            if (++reads[from] < admission) {
+                return distance(from, to);
+            }
+            reads[from] = 0;
+            slot = load(from);
+        } else if (slot != newest) {
+            unlink(slot);
+            linkNewest(slot);
+        }
+        int[] row = rows[slot];
+        int distance = row[to];
+        if (distance == UNKNOWN) {
+            distance = distance(from, to);
+            row[to] = distance;
+        }
+        return distance;
+    }
+
+    /**
+     * Assigns a free slot, or the least recently used one, to the row of a city. The costs of the
+     * row are computed as they are read, so a scan that skips some cities does not pay for them.
+     */
+    private int load(int city) {
+        int slot;
+        if (usedSlots < rows.length) {
+            slot = usedSlots++;
+            rows[slot] = new int[size()];
+        } else {
+            slot = oldest;
+            unlink(slot);
+            citySlot[rowCity[slot]] = NONE;
+        }
+        Arrays.fill(rows[slot], UNKNOWN);
+        rowCity[slot] = city;
+        citySlot[city] = slot;
+        linkNewest(slot);
+        return slot;
+    }
+
+    private void unlink(int slot) {
+        if (newer[slot] == NONE) {
+            newest = older[slot];
+        } else {
+            older[newer[slot]] = older[slot];
+        }
+        if (older[slot] == NONE) {
+            oldest = newer[slot];
+        } else {
+            newer[older[slot]] = newer[slot];
+        }
+    }
+
+    private void linkNewest(int slot) {
+        older[slot] = newest;
+        newer[slot] = NONE;
+        if (newest == NONE) {
+            oldest = slot;
+        } else {
+            newer[newest] = slot;
+        }
+        newest = slot;
+    }
+
+    /**
+     * @return k-d tree over the cities, in the plane for the planar metrics and on the unit sphere
+     * for {@link Metric#GEO}, where the straight-line distance orders cities like the great-circle
+     * distance does; in both spaces a larger distance never gives a smaller cost
+     */
+    KdTree spatialIndex() {
+        if (metric != Metric.GEO) {
+            return new KdTree(x, y);
+        }
+        int n = size();
+        double[] sphereX = new double[n];
+        double[] sphereY = new double[n];
+        double[] sphereZ = new double[n];
+        for (int i = 0; i < n; i++) {
+            sphereX[i] = Math.cos(x[i]) * Math.cos(y[i]);
+            sphereY[i] = Math.cos(x[i]) * Math.sin(y[i]);
+            sphereZ[i] = Math.sin(x[i]);
+        }
+        return new KdTree(sphereX, sphereY, sphereZ);
+    }
+
+    /**
+     * @return Distance in the space of {@link #spatialIndex()} beyond which every city costs
+     * more than {@code cost}, with a margin for rounding errors
+     */
+    double indexRadius(int cost) {
+        double radius;
+        switch (metric) {
+            case EUC_2D:
+                radius = cost + 0.5;
+                break;
+            case CEIL_2D:
+                radius = cost;
+                break;
+            case ATT:
+                radius = Math.sqrt(10.0) * cost;
+                break;
+            default:
+                // The cost exceeds EARTH_RADIUS times the angle, and a chord is 2 sin(angle / 2).
+                radius = 2 * Math.sin(Math.min(cost / EARTH_RADIUS, Math.PI) / 2);
+                break;
+        }
+        return radius * (1 + 1e-9) + 1e-9;
+    }
+
+    /**
+     * @return Upper bound of every distance, from the bounding box of the cities
+     */
+    long distanceBound() {
+        if (metric == Metric.GEO) {
+            // Half the circumference of the idealised Earth, plus the rounding.
+            return (long) (PI * EARTH_RADIUS) + 2;
+        }
+        double width = 0;
+        double height = 0;
+        double minX = x[0];
+        double minY = y[0];
+        for (int i = 0; i < x.length; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+        }
+        for (int i = 0; i < x.length; i++) {
+            width = Math.max(width, x[i] - minX);
+            height = Math.max(height, y[i] - minY);
+        }
+        double diagonal = Math.sqrt(width * width + height * height);
+        return (long) Math.min(Long.MAX_VALUE, (metric == Metric.ATT ? diagonal / Math.sqrt(10.0) : diagonal) + 2);
+    }
+
+    /**
+     * @return Distance between two cities, computed without the cache
+     */
+    int distance(int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        double dx = x[from] - x[to];
+        double dy = y[from] - y[to];
+        switch (metric) {
+            case EUC_2D:
+                return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+            case CEIL_2D:
+                return (int) Math.ceil(Math.sqrt(dx * dx + dy * dy));
+            case ATT: {
+                double r = Math.sqrt((dx * dx + dy * dy) / 10.0);
+                int t = (int) (r + 0.5);
+                return t < r ? t + 1 : t;
+            }
+            default:
+                return geoDistance(from, to);
+        }
+    }
+
+    private int geoDistance(int from, int to) {
+        double q1 = Math.cos(y[from] - y[to]);
+        double q2 = Math.cos(x[from] - x[to]);
+        double q3 = Math.cos(x[from] + x[to]);
+        return (int) (EARTH_RADIUS * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+}
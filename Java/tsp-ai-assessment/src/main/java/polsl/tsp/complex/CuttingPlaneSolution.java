@@ -0,0 +1,777 @@
+package polsl.tsp.complex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exact solver in the style of Dantzig, Fulkerson and Johnson. The tour is relaxed to the linear
+ * program with one variable {@code 0 <= x_e <= 1} per edge and the degree constraints
+ * {@code x(delta(v)) = 2}, solved with the in-house {@link BoundedSimplex}. Whenever the optimum
+ * falls apart into subtours, or more generally has a cut {@code S} with {@code x(delta(S)) < 2},
+ * the subtour elimination constraint for {@code S} is added and the program re-solved. Violated
+ * cuts are found from the connected components of the support graph and, once it is connected,
+ * from the cuts of every phase of the Stoer-Wagner minimum cut algorithm. Blossom inequalities
+ * found with the odd component heuristic tighten the relaxation further, and cuts that stay
+ * slack for a few nodes are dropped again.
+ * <p>
+ * The program starts with the edges to the nearest neighbours of every city and those of an
+ * initial tour. Further edges are priced in from the duals only once no cut is violated, so the
+ * bound is valid for the complete graph. When the relaxation ends fractional the solver branches
+ * on an edge picked by strong branching, fixing it to 1 and then to 0, and prunes with the
+ * incumbent, which starts as the best nearest neighbour tour polished by chained
+ * {@link LinKernighanSolution Lin-Kernighan}, or by Or-opt on asymmetric matrices. At the root,
+ * edges whose reduced cost shows they cannot improve on the incumbent are fixed to 0 for the rest
+ * of the search.
+ * <p>
+ * Asymmetric matrices are transformed into symmetric ones on 2n nodes: every city gets an entry
+ * and an exit node joined by an edge fixed to 1, and the arc from i to j becomes the edge between
+ * the exit of i and the entry of j.
+ */
+public class CuttingPlaneSolution implements TspAlgorithm {
+
+    private static final int CORE_NEIGHBOURS = 8;
+    private static final int LOCAL_SEARCH_NEIGHBOURS = 10;
+    private static final int MAX_MOVE_DEPTH = 50;
+    private static final int KICKS_PER_CITY = 50;
+    private static final int MAX_CUTS_PER_ROUND = 32;
+    private static final int STRONG_BRANCHING_CANDIDATES = 5;
+    private static final int MAX_IDLE_ROUNDS = 3;
+    private static final double INTEGRALITY_TOLERANCE = 1e-6;
+    private static final double CUT_VIOLATION = 1e-4;
+    private static final double BOUND_TOLERANCE = 1e-6;
+
+    private long nodeCount;
+
+    /**
+     * @return Number of branch-and-bound nodes evaluated by the last call to {@link #solveTSP(int[][])}
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
+        nodeCount = 0;
+        if (n == 1) {
+            return new TspResult(new int[]{0}, 0);
+        }
+        if (n == 2) {
+            return new TspResult(new int[]{0, 1, 0}, graph.get(0, 1) + graph.get(1, 0));
+        }
+
+        boolean symmetric = graph.isSymmetric();
+        int[] initialPath = new LinKernighanSolution(LOCAL_SEARCH_NEIGHBOURS, MAX_MOVE_DEPTH, KICKS_PER_CITY * n)
+                .improve(graph, new MultiStartNearestNeighbourSolution(1, 0).solveTSP(graph)).getPath();
+        Search search = new Search(graph, symmetric, initialPath);
+        search.branch();
+        nodeCount = search.nodeCount;
+        return new TspResult(search.bestPath, search.bestCost);
+    }
+
+    /**
+     * Inequality {@code x(delta(S_1)) + ... + x(delta(S_k)) >= rhs} over node sets, stored as the
+     * row {@code x(delta(S_1)) + ... + x(delta(S_k)) - surplus = rhs}. Subtour elimination
+     * constraints have a single set and right-hand side 2; combs have a handle and an odd number
+     * t of teeth and right-hand side 3t + 1.
+     */
+    private static class Cut {
+        final boolean[][] sets;
+        final int rhs;
+        int row;
+        int idleRounds;
+
+        Cut(boolean[][] sets, int rhs, int row) {
+            this.sets = sets;
+            this.rhs = rhs;
+            this.row = row;
+        }
+
+        /**
+         * @return Coefficient of the edge {@code (u, v)}: the number of sets it crosses
+         */
+        int coefficient(int u, int v) {
+            int coefficient = 0;
+            for (boolean[] set : sets) {
+                if (set[u] != set[v]) {
+                    coefficient++;
+                }
+            }
+            return coefficient;
+        }
+    }
+
+    /**
+     * Linear program, cut pool and branch-and-bound state of one solve.
+     */
+    private static class Search {
+        private final DistanceMatrix graph;
+        private final int n;
+        private final boolean symmetric;
+        private final int nodes;
+        private final BoundedSimplex lp = new BoundedSimplex();
+        private final List<Cut> cuts = new ArrayList<>();
+
+        /**
+         * LP variable of the edge {@code u < v} at {@code u * nodes + v}, or -1 if not in the program.
+         */
+        private final int[] edgeVariable;
+        private final boolean[] excluded;
+        private int[] edgeFrom = new int[64];
+        private int[] edgeTo = new int[64];
+        private int[] edgeColumn = new int[64];
+        private int edgeCount;
+
+        private final double[][] weight;
+        private int[] bestPath;
+        private int bestCost;
+        private long nodeCount;
+
+        Search(DistanceMatrix graph, boolean symmetric, int[] initialPath) {
+            this.graph = graph;
+            this.n = graph.size();
+            this.symmetric = symmetric;
+            this.nodes = symmetric ? n : 2 * n;
+            this.edgeVariable = new int[nodes * nodes];
+            this.excluded = new boolean[nodes * nodes];
+            this.weight = new double[nodes][nodes];
+            this.bestPath = initialPath;
+            this.bestCost = BranchAndBoundSolution.pathCost(graph, initialPath);
+            Arrays.fill(edgeVariable, -1);
+
+            for (int v = 0; v < nodes; v++) {
+                lp.addRow(2, 1, 0, 0);
+            }
+            if (symmetric) {
+                for (int i = 0; i < n; i++) {
+                    for (int neighbour : nearest(graph, i)) {
+                        addEdge(i, neighbour);
+                    }
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    addEdge(i, exit(i));
+                    for (int successor : nearest(graph, i)) {
+                        addEdge(exit(i), successor);
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                addEdge(symmetric ? initialPath[i] : exit(initialPath[i]), initialPath[i + 1]);
+            }
+        }
+
+        private int exit(int city) {
+            return n + city;
+        }
+
+        private int[] nearest(DistanceMatrix graph, int city) {
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(graph.get(city, a), graph.get(city, b)));
+            int[] nearest = new int[Math.min(CORE_NEIGHBOURS, n - 1)];
+            int count = 0;
+            for (int i = 0; i < n && count < nearest.length; i++) {
+                if (order[i] != city) {
+                    nearest[count++] = order[i];
+                }
+            }
+            return nearest;
+        }
+
+        /**
+         * Whether {@code u < v} are joined by an edge of the (possibly transformed) graph.
+         */
+        private boolean isEdge(int u, int v) {
+            return symmetric || (u < n && v >= n);
+        }
+
+        private int cost(int u, int v) {
+            if (symmetric) {
+                return graph.get(u, v);
+            }
+            return v - n == u ? 0 : graph.get(v - n, u);
+        }
+
+        private void addEdge(int a, int b) {
+            int u = Math.min(a, b);
+            int v = Math.max(a, b);
+            if (edgeVariable[u * nodes + v] >= 0) {
+                return;
+            }
+            boolean fixed = !symmetric && v - n == u;
+            int variable = lp.addVariable(cost(u, v), fixed ? 1 : 0, 1);
+            lp.addEntry(u, variable, 1);
+            lp.addEntry(v, variable, 1);
+            for (Cut cut : cuts) {
+                int coefficient = cut.coefficient(u, v);
+                if (coefficient != 0) {
+                    lp.addEntry(cut.row, variable, coefficient);
+                }
+            }
+            edgeVariable[u * nodes + v] = variable;
+
+            if (edgeCount == edgeFrom.length) {
+                edgeFrom = Arrays.copyOf(edgeFrom, 2 * edgeCount);
+                edgeTo = Arrays.copyOf(edgeTo, 2 * edgeCount);
+                edgeColumn = Arrays.copyOf(edgeColumn, 2 * edgeCount);
+            }
+            edgeFrom[edgeCount] = u;
+            edgeTo[edgeCount] = v;
+            edgeColumn[edgeCount] = variable;
+            edgeCount++;
+        }
+
+        private void addCut(Cut cut) {
+            for (int e = 0; e < edgeCount; e++) {
+                int coefficient = cut.coefficient(edgeFrom[e], edgeTo[e]);
+                if (coefficient != 0) {
+                    lp.addEntry(cut.row, edgeColumn[e], coefficient);
+                }
+            }
+            cuts.add(cut);
+        }
+
+        private void addSubtourCut(boolean[] side) {
+            // x(delta(S)) <= 2|S| <= 2 nodes, so the surplus bound never cuts off a tour.
+            int row = lp.addRow(2, -1, 0, 2 * nodes);
+            addCut(new Cut(new boolean[][]{side}, 2, row));
+        }
+
+        private void addCombCut(boolean[][] sets) {
+            int rhs = 3 * (sets.length - 1) + 1;
+            int row = lp.addRow(rhs, -1, 0, 2 * nodes * sets.length);
+            addCut(new Cut(sets, rhs, row));
+        }
+
+        void branch() {
+            nodeCount++;
+            if (!evaluate()) {
+                return;
+            }
+            if (nodeCount == 1) {
+                fixByReducedCost();
+            }
+
+            int branchEdge = chooseBranchEdge();
+            if (branchEdge < 0) {
+                recordTour();
+                return;
+            }
+
+            int variable = edgeColumn[branchEdge];
+            lp.setBounds(variable, 1, 1);
+            branch();
+            lp.setBounds(variable, 0, 0);
+            branch();
+            lp.setBounds(variable, 0, 1);
+        }
+
+        /**
+         * Strong branching on the fractional edges closest to 1/2: each candidate is tentatively
+         * fixed to 0 and to 1 and the program re-solved without adding cuts or columns. The edge
+         * whose weaker child bound moves the most, as the product of both increases, is chosen.
+         *
+         * @return Index of the edge to branch on, -1 if the solution is integral
+         */
+        private int chooseBranchEdge() {
+            List<Integer> fractional = new ArrayList<>();
+            for (int e = 0; e < edgeCount; e++) {
+                double x = lp.value(edgeColumn[e]);
+                if (x > INTEGRALITY_TOLERANCE && x < 1 - INTEGRALITY_TOLERANCE) {
+                    fractional.add(e);
+                }
+            }
+            if (fractional.size() <= 1) {
+                return fractional.isEmpty() ? -1 : fractional.get(0);
+            }
+            double[] distance = new double[edgeCount];
+            for (int e : fractional) {
+                distance[e] = Math.abs(lp.value(edgeColumn[e]) - 0.5);
+            }
+            fractional.sort((a, b) -> Double.compare(distance[a], distance[b]));
+
+            double objective = lp.objective();
+            int best = -1;
+            double bestScore = -1;
+            for (int i = 0; i < fractional.size() && i < STRONG_BRANCHING_CANDIDATES; i++) {
+                int e = fractional.get(i);
+                int variable = edgeColumn[e];
+                double score = 1;
+                for (int fixed = 0; fixed <= 1; fixed++) {
+                    lp.setBounds(variable, fixed, fixed);
+                    double increase = lp.solve() ? lp.objective() - objective : bestCost;
+                    score *= Math.max(increase, BOUND_TOLERANCE);
+                }
+                lp.setBounds(variable, 0, 1);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = e;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Solves the relaxation of the current node to optimality over the complete graph.
+         *
+         * @return false if the node is infeasible or cannot lead to a tour cheaper than the incumbent
+         */
+        private boolean evaluate() {
+            while (true) {
+                if (!lp.solve()) {
+                    if (addColumns(lp.farkasRay(), true) > 0) {
+                        continue;
+                    }
+                    return false;
+                }
+                if (separate()) {
+                    continue;
+                }
+
+                double[] duals = new double[lp.rowCount()];
+                for (int row = 0; row < duals.length; row++) {
+                    duals[row] = lp.dual(row);
+                }
+                int added = addColumns(duals, false);
+                if (added != 0) {
+                    if (added > 0) {
+                        continue;
+                    }
+                    return false;
+                }
+                purgeCuts();
+                return !canPrune(lp.objective());
+            }
+        }
+
+        /**
+         * Drops cuts that have not been tight for {@link #MAX_IDLE_ROUNDS} consecutive nodes, so
+         * the basis stays small. Dropping a cut with a basic surplus does not change the optimum.
+         */
+        private void purgeCuts() {
+            boolean[] remove = new boolean[lp.rowCount()];
+            boolean any = false;
+            for (Cut cut : cuts) {
+                boolean slack = lp.isLogicalBasic(cut.row) && lp.logicalValue(cut.row) > INTEGRALITY_TOLERANCE;
+                cut.idleRounds = slack ? cut.idleRounds + 1 : 0;
+                if (cut.idleRounds >= MAX_IDLE_ROUNDS) {
+                    remove[cut.row] = true;
+                    any = true;
+                }
+            }
+            if (!any) {
+                return;
+            }
+            int[] newRow = lp.removeRows(remove);
+            cuts.removeIf(cut -> remove[cut.row]);
+            for (Cut cut : cuts) {
+                cut.row = newRow[cut.row];
+            }
+        }
+
+        private boolean canPrune(double lowerBound) {
+            return Math.ceil(lowerBound - BOUND_TOLERANCE) >= bestCost;
+        }
+
+        /**
+         * Adds the edges outside the program that can help: those with negative reduced cost under
+         * the given duals or, when pricing a proof of infeasibility, those with a positive
+         * product with the ray. Reduced costs are only computed against the cuts with a nonzero
+         * multiplier.
+         *
+         * @return Number of edges added, or -1 if the Lagrangian bound already prunes the node
+         */
+        private int addColumns(double[] multipliers, boolean infeasible) {
+            List<Cut> active = new ArrayList<>();
+            for (Cut cut : cuts) {
+                if (multipliers[cut.row] != 0) {
+                    active.add(cut);
+                }
+            }
+
+            double lagrangianBound = infeasible ? 0 : lp.objective();
+            List<int[]> candidates = new ArrayList<>();
+            List<Double> scores = new ArrayList<>();
+            for (int u = 0; u < nodes; u++) {
+                for (int v = u + 1; v < nodes; v++) {
+                    int key = u * nodes + v;
+                    if (edgeVariable[key] >= 0 || excluded[key] || !isEdge(u, v)) {
+                        continue;
+                    }
+                    double product = multipliers[u] + multipliers[v];
+                    for (Cut cut : active) {
+                        product += multipliers[cut.row] * cut.coefficient(u, v);
+                    }
+                    double score = infeasible ? -product : cost(u, v) - product;
+                    if (score < -BOUND_TOLERANCE) {
+                        candidates.add(new int[]{u, v});
+                        scores.add(score);
+                        lagrangianBound += score;
+                    }
+                }
+            }
+            if (!infeasible && canPrune(lagrangianBound)) {
+                return -1;
+            }
+            if (candidates.isEmpty()) {
+                return 0;
+            }
+
+            Integer[] order = new Integer[candidates.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(scores.get(a), scores.get(b)));
+            int limit = Math.min(order.length, nodes);
+            for (int i = 0; i < limit; i++) {
+                int[] edge = candidates.get(order[i]);
+                addEdge(edge[0], edge[1]);
+            }
+            return limit;
+        }
+
+        /**
+         * Adds violated subtour elimination constraints, returning false if there are none.
+         */
+        private boolean separate() {
+            for (double[] row : weight) {
+                Arrays.fill(row, 0);
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                double x = lp.value(edgeColumn[e]);
+                if (x > INTEGRALITY_TOLERANCE) {
+                    weight[edgeFrom[e]][edgeTo[e]] = x;
+                    weight[edgeTo[e]][edgeFrom[e]] = x;
+                }
+            }
+
+            List<boolean[]> violated = components();
+            List<boolean[][]> combs = new ArrayList<>();
+            if (violated.size() == 1) {
+                violated = minimumCuts();
+                combs = blossoms();
+            }
+            for (int i = 0; i < violated.size() && i < MAX_CUTS_PER_ROUND; i++) {
+                addSubtourCut(violated.get(i));
+            }
+            for (int i = 0; i < combs.size() && i < MAX_CUTS_PER_ROUND; i++) {
+                addCombCut(combs.get(i));
+            }
+            return !violated.isEmpty() || !combs.isEmpty();
+        }
+
+        /**
+         * Blossom inequalities, combs whose teeth are single edges, found with the odd component
+         * heuristic: the handle is a connected component of the fractional edges and the teeth
+         * are the edges at 1 leaving it. A city outside reached by two teeth is moved into the
+         * handle, which keeps the number of teeth odd and the teeth disjoint. With the degree
+         * constraints a tooth {@code (u, v)} has {@code x(delta({u, v})) = 4 - 2 x_uv}.
+         */
+        private List<boolean[][]> blossoms() {
+            List<boolean[][]> combs = new ArrayList<>();
+            boolean[] seen = new boolean[nodes];
+            int[] stack = new int[nodes];
+            int[] toothEnd = new int[nodes];
+            for (int start = 0; start < nodes; start++) {
+                if (seen[start] || !hasFractionalEdge(start)) {
+                    continue;
+                }
+                boolean[] handle = new boolean[nodes];
+                int size = 0;
+                stack[size++] = start;
+                seen[start] = true;
+                while (size > 0) {
+                    int u = stack[--size];
+                    handle[u] = true;
+                    for (int v = 0; v < nodes; v++) {
+                        if (!seen[v] && isFractional(weight[u][v])) {
+                            seen[v] = true;
+                            stack[size++] = v;
+                        }
+                    }
+                }
+
+                List<Integer> teeth = new ArrayList<>();
+                boolean grown = true;
+                while (grown) {
+                    grown = false;
+                    teeth.clear();
+                    Arrays.fill(toothEnd, -1);
+                    for (int e = 0; e < edgeCount && !grown; e++) {
+                        int u = edgeFrom[e];
+                        int v = edgeTo[e];
+                        if (handle[u] == handle[v] || lp.value(edgeColumn[e]) < 1 - INTEGRALITY_TOLERANCE) {
+                            continue;
+                        }
+                        int outside = handle[u] ? v : u;
+                        if (toothEnd[outside] >= 0) {
+                            handle[outside] = true;
+                            grown = true;
+                        }
+                        toothEnd[outside] = e;
+                        teeth.add(e);
+                    }
+                }
+
+                int count = teeth.size();
+                if (count < 3 || count % 2 == 0) {
+                    continue;
+                }
+                double lhs = 0;
+                for (int e = 0; e < edgeCount; e++) {
+                    if (handle[edgeFrom[e]] != handle[edgeTo[e]]) {
+                        lhs += lp.value(edgeColumn[e]);
+                    }
+                }
+                for (int tooth : teeth) {
+                    lhs += 4 - 2 * lp.value(edgeColumn[tooth]);
+                }
+                if (lhs < 3 * count + 1 - CUT_VIOLATION) {
+                    boolean[][] sets = new boolean[count + 1][];
+                    sets[0] = handle;
+                    for (int i = 0; i < count; i++) {
+                        sets[i + 1] = new boolean[nodes];
+                        sets[i + 1][edgeFrom[teeth.get(i)]] = true;
+                        sets[i + 1][edgeTo[teeth.get(i)]] = true;
+                    }
+                    combs.add(sets);
+                }
+            }
+            return combs;
+        }
+
+        private boolean isFractional(double x) {
+            return x > INTEGRALITY_TOLERANCE && x < 1 - INTEGRALITY_TOLERANCE;
+        }
+
+        private boolean hasFractionalEdge(int u) {
+            for (int v = 0; v < nodes; v++) {
+                if (isFractional(weight[u][v])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Connected components of the support graph; with more than one, each is a violated cut.
+         */
+        private List<boolean[]> components() {
+            List<boolean[]> components = new ArrayList<>();
+            boolean[] seen = new boolean[nodes];
+            int[] stack = new int[nodes];
+            for (int start = 0; start < nodes; start++) {
+                if (seen[start]) {
+                    continue;
+                }
+                boolean[] component = new boolean[nodes];
+                int size = 0;
+                stack[size++] = start;
+                seen[start] = true;
+                while (size > 0) {
+                    int u = stack[--size];
+                    component[u] = true;
+                    for (int v = 0; v < nodes; v++) {
+                        if (!seen[v] && weight[u][v] > 0) {
+                            seen[v] = true;
+                            stack[size++] = v;
+                        }
+                    }
+                }
+                components.add(component);
+            }
+            return components;
+        }
+
+        /**
+         * Stoer-Wagner on the support graph, keeping the cut of every phase that is violated.
+         * The cut of a phase separates the last vertex added from the others, so each one is a
+         * real cut of the graph even when it is not the minimum one.
+         * <p>
+         * Edges at 1 are contracted first. This loses no violated cut: if {@code S} holds u but not
+         * v with {@code x_uv = 1}, the degree constraints give
+         * {@code x(delta(S + v)) = x(delta(S)) + 2 - 2 x(v, S) <= x(delta(S))}.
+         */
+        private List<boolean[]> minimumCuts() {
+            int[] group = new int[nodes];
+            for (int u = 0; u < nodes; u++) {
+                group[u] = u;
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                if (lp.value(edgeColumn[e]) >= 1 - INTEGRALITY_TOLERANCE) {
+                    group[find(group, edgeFrom[e])] = find(group, edgeTo[e]);
+                }
+            }
+
+            // Shrunk vertices, each with the list of its cities linked through next.
+            int[] vertex = new int[nodes];
+            int[] head = new int[nodes];
+            int[] tail = new int[nodes];
+            int[] next = new int[nodes];
+            int count = 0;
+            for (int u = 0; u < nodes; u++) {
+                if (find(group, u) == u) {
+                    vertex[u] = count;
+                    head[count] = -1;
+                    count++;
+                }
+            }
+            for (int u = nodes - 1; u >= 0; u--) {
+                int v = vertex[find(group, u)];
+                if (head[v] < 0) {
+                    tail[v] = u;
+                }
+                next[u] = head[v];
+                head[v] = u;
+            }
+            double[][] w = new double[count][count];
+            for (int e = 0; e < edgeCount; e++) {
+                int a = vertex[find(group, edgeFrom[e])];
+                int b = vertex[find(group, edgeTo[e])];
+                if (a != b) {
+                    double x = lp.value(edgeColumn[e]);
+                    w[a][b] += x;
+                    w[b][a] += x;
+                }
+            }
+
+            List<boolean[]> violated = new ArrayList<>();
+            int[] vertices = new int[count];
+            for (int v = 0; v < count; v++) {
+                vertices[v] = v;
+            }
+            double[] key = new double[count];
+            boolean[] added = new boolean[count];
+
+            for (int size = count; size > 1; size--) {
+                for (int i = 0; i < size; i++) {
+                    key[vertices[i]] = 0;
+                    added[vertices[i]] = false;
+                }
+                int previous = -1;
+                int last = -1;
+                for (int step = 0; step < size; step++) {
+                    int selected = -1;
+                    for (int i = 0; i < size; i++) {
+                        int v = vertices[i];
+                        if (!added[v] && (selected < 0 || key[v] > key[selected])) {
+                            selected = v;
+                        }
+                    }
+                    added[selected] = true;
+                    previous = last;
+                    last = selected;
+                    for (int i = 0; i < size; i++) {
+                        int v = vertices[i];
+                        if (!added[v]) {
+                            key[v] += w[selected][v];
+                        }
+                    }
+                }
+
+                if (key[last] < 2 - CUT_VIOLATION) {
+                    boolean[] side = new boolean[nodes];
+                    for (int u = head[last]; u >= 0; u = next[u]) {
+                        side[u] = true;
+                    }
+                    violated.add(side);
+                }
+
+                for (int i = 0; i < size; i++) {
+                    int v = vertices[i];
+                    w[previous][v] += w[last][v];
+                    w[v][previous] = w[previous][v];
+                }
+                w[previous][previous] = 0;
+                next[tail[previous]] = head[last];
+                tail[previous] = tail[last];
+                for (int i = 0; i < size; i++) {
+                    if (vertices[i] == last) {
+                        vertices[i] = vertices[size - 1];
+                        break;
+                    }
+                }
+            }
+            return violated;
+        }
+
+        private static int find(int[] group, int u) {
+            while (group[u] != u) {
+                group[u] = group[group[u]];
+                u = group[u];
+            }
+            return u;
+        }
+
+        /**
+         * Fixes to 0 every edge whose reduced cost at the root alone closes the gap to the
+         * incumbent, and excludes such edges outside the program from later pricing.
+         */
+        private void fixByReducedCost() {
+            double root = lp.objective();
+            for (int e = 0; e < edgeCount; e++) {
+                int variable = edgeColumn[e];
+                if (lp.value(variable) < INTEGRALITY_TOLERANCE && canPrune(root + lp.reducedCost(variable))) {
+                    lp.setBounds(variable, 0, 0);
+                }
+            }
+
+            List<Cut> active = new ArrayList<>();
+            for (Cut cut : cuts) {
+                if (lp.dual(cut.row) != 0) {
+                    active.add(cut);
+                }
+            }
+            for (int u = 0; u < nodes; u++) {
+                for (int v = u + 1; v < nodes; v++) {
+                    int key = u * nodes + v;
+                    if (edgeVariable[key] >= 0 || !isEdge(u, v)) {
+                        continue;
+                    }
+                    double reducedCost = cost(u, v) - lp.dual(u) - lp.dual(v);
+                    for (Cut cut : active) {
+                        reducedCost -= lp.dual(cut.row) * cut.coefficient(u, v);
+                    }
+                    excluded[key] = canPrune(root + reducedCost);
+                }
+            }
+        }
+
+        /**
+         * Reads the tour off an integral, connected solution and keeps it if it beats the incumbent.
+         */
+        private void recordTour() {
+            int[][] adjacent = new int[nodes][2];
+            int[] degree = new int[nodes];
+            for (int e = 0; e < edgeCount; e++) {
+                if (lp.value(edgeColumn[e]) > 0.5) {
+                    adjacent[edgeFrom[e]][degree[edgeFrom[e]]++] = edgeTo[e];
+                    adjacent[edgeTo[e]][degree[edgeTo[e]]++] = edgeFrom[e];
+                }
+            }
+
+            int[] path = new int[n + 1];
+            int length = 1;
+            int previous = 0;
+            int current = symmetric ? adjacent[0][0] : exit(0);
+            while (current != 0) {
+                if (current < n) {
+                    path[length++] = current;
+                }
+                int following = adjacent[current][0] == previous ? adjacent[current][1] : adjacent[current][0];
+                previous = current;
+                current = following;
+            }
+
+            int cost = BranchAndBoundSolution.pathCost(graph, path);
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestPath = path;
+            }
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package polsl.tsp.complex;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Square matrix of travel costs, stored in a single flat array rather than one array per row.
+ * A jagged {@code int[][]} keeps every row in its own heap object, so scanning a matrix chases a
+ * pointer per row and the rows may end up anywhere on the heap.
+ * <p>
+ * {@link #of(int[][])} picks the narrowest element type that reproduces every cost exactly:
+ * {@code char} for costs in 0..65535, {@code short} for costs in -32768..32767, a 16-bit code
+ * decoded as {@code minimum + g * code} when the costs are spaced by a common divisor {@code g},
+ * and {@code int} otherwise.
+ * <p>
+ * Symmetric matrices may also keep only the upper triangle, diagonal included, which halves the
+ * footprint again: row {@code i} holds the costs from {@code i} to cities {@code i..n-1}, and the
+ * cost from {@code i} to an earlier city {@code j} is read from row {@code j}. Reads below the
+ * diagonal then stride across rows, which makes row scans several times slower, so the triangle
+ * is only chosen automatically when the full matrix would crowd the heap. A symmetric matrix of
+ * 20 000 cities with costs below 65 536 takes 800 MB in full and 400 MB as a triangle, instead of
+ * 1.6 GB as {@code int[][]}.
+ * <p>
+ * The shape is checked once, when the matrix is built, so solvers taking a {@code DistanceMatrix}
+ * can rely on it being non-empty and square. The costs of an instance never change, though an
+ * implementation may cache them internally as they are read.
+ */
+public abstract class DistanceMatrix {
+
+    /**
+     * Largest array length that every JVM accepts.
+     */
+    static final long MAX_ENTRIES = Integer.MAX_VALUE - 8;
+    private static final int TILE = 64;
+    private static final int MIN_TILES_PER_TASK = 4;
+
+    private final int size;
+
+    /**
+     * @param size Number of cities
+     */
+    DistanceMatrix(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Copies a jagged matrix into the narrowest backing that holds it exactly. Symmetric matrices
+     * are stored as a triangle when the full matrix would take more than a quarter of the maximum
+     * heap size or would not fit in a single array.
+     *
+     * @throws IllegalArgumentException if the graph is null, empty, not square, has null rows or
+     *                                  is too large to fit in a single array
+     */
+    public static DistanceMatrix of(int[][] graph) {
+        validate(graph);
+        long entries = (long) graph.length * graph.length;
+        long bytes = entries * (new ValueRange(graph).fitsScaled() ? Character.BYTES : Integer.BYTES);
+        boolean large = bytes > Runtime.getRuntime().maxMemory() / 4 || entries > MAX_ENTRIES;
+        return of(graph, large && isSymmetric(graph));
+    }
+
+    /**
+     * Copies a jagged matrix into the narrowest backing that holds it exactly, with the given
+     * layout.
+     *
+     * @param triangular Whether to store only the upper triangle, which requires a symmetric graph
+     * @throws IllegalArgumentException if the graph is null, empty, not square, has null rows or
+     *                                  is too large to fit in a single array, or if a triangle is
+     *                                  requested for an asymmetric graph
+     */
+    public static DistanceMatrix of(int[][] graph, boolean triangular) {
+        validate(graph);
+        if (triangular && !isSymmetric(graph)) {
+            throw new IllegalArgumentException("Only a symmetric graph can be stored as a triangle");
+        }
+        int size = graph.length;
+        long entries = triangular ? (long) size * (size + 1) / 2 : (long) size * size;
+        if (entries > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Graph is too large: " + size + " cities");
+        }
+
+        ArrayDistanceMatrix matrix = narrowest(size, triangular, (int) entries, new ValueRange(graph));
+        for (int i = 0; i < size; i++) {
+            for (int j = triangular ? i : 0; j < size; j++) {
+                matrix.set(matrix.index(i, j), graph[i][j]);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Moves the costs of an {@code int} matrix filled in place, e.g. by {@link TsplibReader}, into
+     * the narrowest backing that holds them exactly, with the same layout. The matrix itself is
+     * returned when the costs need the full {@code int} width.
+     */
+    static DistanceMatrix narrow(IntDistanceMatrix matrix) {
+        int[] distances = matrix.distances();
+        ArrayDistanceMatrix narrowed = narrowest(matrix.size(), matrix.isTriangular(), distances.length, new ValueRange(distances));
+        if (narrowed instanceof IntDistanceMatrix) {
+            return matrix;
+        }
+        for (int index = 0; index < distances.length; index++) {
+            narrowed.set(index, distances[index]);
+        }
+        return narrowed;
+    }
+
+    private static ArrayDistanceMatrix narrowest(int size, boolean triangular, int entries, ValueRange range) {
+        if (range.minimum >= Character.MIN_VALUE && range.maximum <= Character.MAX_VALUE) {
+            return new CharDistanceMatrix(size, triangular, entries);
+        } else if (range.minimum >= Short.MIN_VALUE && range.maximum <= Short.MAX_VALUE) {
+            return new ShortDistanceMatrix(size, triangular, entries);
+        } else if (range.fitsScaled()) {
+            return new ScaledDistanceMatrix(size, triangular, entries, range.minimum, (int) range.step);
+        }
+        return new IntDistanceMatrix(size, triangular, entries);
+    }
+
+    /**
+     * Computes every distance of a coordinate matrix into the narrowest flat backing that holds
+     * them, trading O(n^2) memory for reads without any arithmetic. Each pair is computed once and
+     * mirrored, as coordinate metrics are symmetric. With a parallelism above one, the upper
+     * triangle is split into square tiles of {@value #TILE} x {@value #TILE} cities, so a tile and
+     * its mirror image each cover a few rows of the backing array, and ranges of tiles are filled
+     * on a {@link ForkJoinPool}. The triangle is stored alone under the same conditions as in
+     * {@link #of(int[][])}.
+     *
+     * @param parallelism Number of worker threads, 1 to fill the matrix on the calling thread
+     * @throws IllegalArgumentException if the parallelism is not positive or the matrix is too
+     *                                  large to fit in a single array
+     */
+    public static DistanceMatrix of(CoordinateDistanceMatrix coordinates, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        int size = coordinates.size();
+        boolean narrow = coordinates.distanceBound() <= Character.MAX_VALUE;
+        long entries = (long) size * size;
+        long bytes = entries * (narrow ? Character.BYTES : Integer.BYTES);
+        boolean triangular = bytes > Runtime.getRuntime().maxMemory() / 4 || entries > MAX_ENTRIES;
+        if (triangular) {
+            entries = (long) size * (size + 1) / 2;
+        }
+        if (entries > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Graph is too large: " + size + " cities");
+        }
+
+        ArrayDistanceMatrix matrix = narrow
+                ? new CharDistanceMatrix(size, triangular, (int) entries)
+                : new IntDistanceMatrix(size, triangular, (int) entries);
+        int tiles = (size + TILE - 1) / TILE;
+        int pairs = tiles * (tiles + 1) / 2;
+        TileTask task = new TileTask(coordinates, matrix, tiles, 0, pairs, Math.max(MIN_TILES_PER_TASK, pairs / (parallelism * 8)));
+        if (parallelism == 1) {
+            task.fill();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Fills a range of the tiles of the upper triangle, numbered row by row: tile row {@code r}
+     * holds the tiles {@code (r, r)} to {@code (r, tiles - 1)}.
+     */
+    private static class TileTask extends RecursiveAction {
+        private final CoordinateDistanceMatrix coordinates;
+        private final ArrayDistanceMatrix matrix;
+        private final int tiles;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        TileTask(CoordinateDistanceMatrix coordinates, ArrayDistanceMatrix matrix, int tiles, int from, int to, int grain) {
+            this.coordinates = coordinates;
+            this.matrix = matrix;
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                fill();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TileTask(coordinates, matrix, tiles, from, middle, grain),
+                    new TileTask(coordinates, matrix, tiles, middle, to, grain));
+        }
+
+        void fill() {
+            int tileRow = 0;
+            int tileColumn = from;
+            while (tileColumn >= tiles - tileRow) {
+                tileColumn -= tiles - tileRow;
+                tileRow++;
+            }
+            tileColumn += tileRow;
+            for (int tile = from; tile < to; tile++) {
+                fillTile(tileRow, tileColumn);
+                if (++tileColumn == tiles) {
+                    tileRow++;
+                    tileColumn = tileRow;
+                }
+            }
+        }
+
+        private void fillTile(int tileRow, int tileColumn) {
+            int size = matrix.size();
+            boolean mirror = !matrix.isTriangular();
+            int rowEnd = Math.min(size, (tileRow + 1) * TILE);
+            int columnStart = tileColumn * TILE;
+            int columnEnd = Math.min(size, columnStart + TILE);
+            for (int i = tileRow * TILE; i < rowEnd; i++) {
+                for (int j = Math.max(i, columnStart); j < columnEnd; j++) {
+                    int distance = coordinates.distance(i, j);
+                    matrix.set(matrix.index(i, j), distance);
+                    if (mirror) {
+                        matrix.set(matrix.index(j, i), distance);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void validate(int[][] graph) {
+        if (graph == null || graph.length == 0) {
+            throw new IllegalArgumentException("Graph cannot be null or empty");
+        }
+        for (int[] row : graph) {
+            if (row == null || row.length != graph.length) {
+                throw new IllegalArgumentException("Graph must be a square matrix");
+            }
+        }
+    }
+
+    private static boolean isSymmetric(int[][] graph) {
+        for (int i = 0; i < graph.length; i++) {
+            for (int j = i + 1; j < graph.length; j++) {
+                if (graph[i][j] != graph[j][i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Smallest and largest cost of a matrix, given as rows or as one backing array, and the
+     * greatest common divisor of all differences from the smallest cost.
+     */
+    private static class ValueRange {
+        private final int minimum;
+        private final int maximum;
+        private final long step;
+
+        ValueRange(int[]... graph) {
+            int minimum = Integer.MAX_VALUE;
+            int maximum = Integer.MIN_VALUE;
+            for (int[] row : graph) {
+                for (int value : row) {
+                    minimum = Math.min(minimum, value);
+                    maximum = Math.max(maximum, value);
+                }
+            }
+            long step = 0;
+            for (int[] row : graph) {
+                for (int value : row) {
+                    step = gcd(step, (long) value - minimum);
+                }
+            }
+            this.minimum = minimum;
+            this.maximum = maximum;
+            this.step = Math.max(step, 1);
+        }
+
+        /**
+         * @return Whether every cost has a 16-bit code with an {@code int} step; true whenever raw
+         * {@code char} or {@code short} storage fits as well
+         */
+        boolean fitsScaled() {
+            return step <= Integer.MAX_VALUE && ((long) maximum - minimum) / step <= Character.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return Greatest common divisor of two non-negative numbers, or the other one if either is 0
+     */
+    static long gcd(long a, long b) {
+        while (b != 0) {
+            long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
+    /**
+     * @return Number of cities
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Cost of travelling from city {@code from} to city {@code to}
+     */
+    public abstract int get(int from, int to);
+
+    /**
+     * @return Whether the cost between every pair of cities is the same in both directions
+     */
+    public boolean isSymmetric() {
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (get(i, j) != get(j, i)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 64-bit hash of every cost, used to make sure a checkpoint belongs to the matrix
+     * being solved
+     */
+    long fingerprint() {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                hash = (hash ^ get(i, j)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Copies the matrix into one row-major array, the cost from {@code i} to {@code j} at
+     * {@code i * size() + j}. Exact solvers of small instances read every cost many times; from
+     * a local array the hot loops skip the virtual call to {@link #get(int, int)}, which does not
+     * inline once several backings are in use.
+     */
+    int[] toFlatArray() {
+        int[] costs = new int[Math.multiplyExact(size, size)];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                costs[i * size + j] = get(i, j);
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * @return Copy of the matrix as a jagged array
+     */
+    public int[][] toArray() {
+        int[][] graph = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                graph[i][j] = get(i, j);
+            }
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,168 @@
+package polsl.tsp.complex;
+
+import java.util.Arrays;
+
+/**
+ * Nearest-neighbour construction without rescanning every city at every step. It builds exactly
+ * the tour of {@link ComplexDeepSeekNNSolution}: start at city 0, always move to the cheapest
+ * unvisited city, and break ties by the lowest index.
+ * <p>
+ * Each step first looks at the {@link CandidateLists candidate list} of the current city and
+ * takes its first unvisited candidate, as long as that one is strictly cheaper than the last
+ * candidate on the list: every city missing from the list costs at least as much as the last
+ * candidate, so none of them can be cheaper or tie. Only when the list gives no such answer does
+ * the step fall back to a search among the unvisited cities, which is a query of a {@link
+ * KdTree.Remaining k-d tree with removal} for a {@link CoordinateDistanceMatrix}, followed by a
+ * search of the cities around the found one that round to the same cost, and a scan of the row
+ * for any other matrix. Coordinate instances are built in about O(n log n) time.
+ * <p>
+ * Other matrices have to be read in full to build their candidate lists, which takes about twice
+ * as long as one plain nearest-neighbour pass, so {@link #solveTSP(DistanceMatrix)} scans their
+ * rows directly. The lists pay off once they are shared by several tours, e.g. from different
+ * start cities, as in {@link MultiStartNearestNeighbourSolution}.
+ */
+public class FastNearestNeighbourSolution implements TspAlgorithm {
+
+    private static final int NEIGHBOURS = 10;
+
+    private final int neighbours;
+
+    public FastNearestNeighbourSolution() {
+        this(NEIGHBOURS);
+    }
+
+    /**
+     * @param neighbours Length of the candidate list of each city
+     */
+    public FastNearestNeighbourSolution(int neighbours) {
+        if (neighbours < 1) {
+            throw new IllegalArgumentException("Number of neighbours must be positive");
+        }
+        this.neighbours = neighbours;
+    }
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
+        if (n == 1) {
+            return new TspResult(new int[]{0}, 0);
+        }
+
+        KdTree tree = null;
+        CandidateLists candidates = null;
+        if (graph instanceof CoordinateDistanceMatrix) {
+            tree = ((CoordinateDistanceMatrix) graph).spatialIndex();
+            candidates = CandidateLists.of((CoordinateDistanceMatrix) graph, tree, neighbours, 0);
+        }
+
+        int[] path = tour(graph, candidates, new Scratch(n, tree), 0);
+        int totalCost = 0;
+        for (int i = 0; i < n; i++) {
+            totalCost += graph.get(path[i], path[i + 1]);
+        }
+        return new TspResult(path, totalCost);
+    }
+
+    /**
+     * Arrays of {@link #tour}, kept between tours of the same instance so that they allocate
+     * nothing. Not thread-safe.
+     */
+    static final class Scratch {
+        private final int[] path;
+        private final boolean[] visited;
+        private final KdTree.Remaining remaining;
+
+        /**
+         * @param tree Spatial index of a {@link CoordinateDistanceMatrix}, null for other matrices
+         */
+        Scratch(int n, KdTree tree) {
+            this.path = new int[n + 1];
+            this.visited = new boolean[n];
+            this.remaining = tree == null ? null : tree.remaining();
+        }
+    }
+
+    /**
+     * Builds the nearest-neighbour tour from a start city.
+     *
+     * @param candidates Candidate lists of the matrix, null to scan rows
+     * @return Closed tour starting and ending in {@code start}, held by the scratch space and
+     * overwritten by its next tour
+     */
+    static int[] tour(DistanceMatrix graph, CandidateLists candidates, Scratch scratch, int start) {
+        int n = graph.size();
+        int[] path = scratch.path;
+        boolean[] visited = scratch.visited;
+        KdTree.Remaining remaining = scratch.remaining;
+        Arrays.fill(visited, false);
+        if (remaining != null) {
+            remaining.reset();
+        }
+
+        int current = start;
+        path[0] = start;
+        visited[start] = true;
+        if (remaining != null) {
+            remaining.remove(start);
+        }
+        for (int i = 1; i < n; i++) {
+            int next = candidates == null ? -1 : fromCandidates(graph, candidates, visited, current);
+            if (next < 0) {
+                next = remaining != null ? nearestRemaining(graph, remaining, current) : nearestInRow(graph, visited, current);
+            }
+            path[i] = next;
+            visited[next] = true;
+            if (remaining != null) {
+                remaining.remove(next);
+            }
+            current = next;
+        }
+        path[n] = start;
+        return path;
+    }
+
+    /**
+     * @return Cheapest unvisited city if the candidate list proves it, -1 otherwise
+     */
+    private static int fromCandidates(DistanceMatrix graph, CandidateLists candidates, boolean[] visited, int city) {
+        int count = candidates.count(city);
+        for (int rank = 0; rank < count; rank++) {
+            int candidate = candidates.get(city, rank);
+            if (!visited[candidate]) {
+                // A complete list holds every city; otherwise the rest may tie with the last one.
+                if (count == visited.length - 1
+                        || graph.get(city, candidate) < graph.get(city, candidates.get(city, count - 1))) {
+                    return candidate;
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int nearestRemaining(DistanceMatrix graph, KdTree.Remaining remaining, int city) {
+        int nearest = remaining.nearest(city);
+        // Rounding may give other cities around the nearest one the same cost, and a lower index.
+        int[] best = {nearest, graph.get(city, nearest)};
+        remaining.forEachWithin(city, ((CoordinateDistanceMatrix) graph).indexRadius(best[1]), other -> {
+            int cost = graph.get(city, other);
+            if (cost < best[1] || (cost == best[1] && other < best[0])) {
+                best[0] = other;
+                best[1] = cost;
+            }
+        });
+        return best[0];
+    }
+
+    private static int nearestInRow(DistanceMatrix graph, boolean[] visited, int city) {
+        int minDistance = Integer.MAX_VALUE;
+        int nearestCity = -1;
+        for (int i = 0; i < visited.length; i++) {
+            if (!visited[i] && graph.get(city, i) < minDistance) {
+                minDistance = graph.get(city, i);
+                nearestCity = i;
+            }
+        }
+        return nearestCity;
+    }
+}
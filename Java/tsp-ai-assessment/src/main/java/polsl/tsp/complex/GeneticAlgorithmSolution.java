@@ -0,0 +1,353 @@
+package polsl.tsp.complex;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Genetic algorithm with an island model. The population is split into islands that evolve
+ * independently, each on its own worker thread, so the fitness of every island's offspring is
+ * evaluated in parallel with the others. Every {@link #MIGRATION_INTERVAL} generations the islands
+ * stop, and the {@link #MIGRANTS} best tours of each island replace the worst ones of the next
+ * island in a ring.
+ * <p>
+ * A generation keeps the {@link #ELITE} best tours of an island and fills the rest with children of
+ * parents picked by tournaments of {@link #TOURNAMENT} tours. A child is made by order crossover:
+ * a random slice of the first parent keeps its positions, and the remaining positions are filled
+ * with the other cities in the order of the second parent, a bitset telling which cities the slice
+ * already holds. Some children are then mutated by reversing a random slice.
+ * <p>
+ * An island holds its tours in one flat {@code int[]} of {@code populationSize * n} cities and
+ * their costs in an {@code int[]}; tours are ranked by sorting {@code long} keys of cost and index,
+ * and a generation allocates nothing. Each island draws from its own {@link SplittableRandom}
+ * split off a seeded one, and migration runs between the parallel phases in island order, so the
+ * result depends on the seed and the number of islands but not on the parallelism.
+ */
+public class GeneticAlgorithmSolution implements TspAlgorithm {
+
+    private static final int POPULATION_SIZE = 100;
+    private static final int GENERATIONS = 1000;
+    private static final long SEED = 42;
+
+    private static final int ELITE = 2;
+    private static final int TOURNAMENT = 3;
+    private static final double MUTATION_RATE = 0.2;
+    private static final int MIGRATION_INTERVAL = 50;
+    private static final int MIGRANTS = 2;
+
+    private final int islands;
+    private final int parallelism;
+    private final int populationSize;
+    private final int generations;
+    private final long seed;
+
+    /**
+     * One island per available processor, with the default population, generations and seed.
+     */
+    public GeneticAlgorithmSolution() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(),
+                POPULATION_SIZE, GENERATIONS, SEED);
+    }
+
+    /**
+     * @param islands        Number of islands
+     * @param parallelism    Number of worker threads
+     * @param populationSize Number of tours on each island
+     * @param generations    Number of generations
+     * @param seed           Seed of the random generators
+     */
+    public GeneticAlgorithmSolution(int islands, int parallelism, int populationSize, int generations, long seed) {
+        if (islands < 1) {
+            throw new IllegalArgumentException("Number of islands must be positive");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        if (populationSize <= ELITE) {
+            throw new IllegalArgumentException("Population size must be greater than " + ELITE + ", got " + populationSize);
+        }
+        if (generations < 0) {
+            throw new IllegalArgumentException("Number of generations cannot be negative, got " + generations);
+        }
+        this.islands = islands;
+        this.parallelism = parallelism;
+        this.populationSize = populationSize;
+        this.generations = generations;
+        this.seed = seed;
+    }
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
+        if (n == 1) {
+            return new TspResult(new int[]{0}, 0);
+        }
+
+        SplittableRandom root = new SplittableRandom(seed);
+        Island[] population = new Island[islands];
+        for (int i = 0; i < islands; i++) {
+            population[i] = new Island(graph, populationSize, root.split());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int done = 0; done < generations; done += MIGRATION_INTERVAL) {
+                int epoch = Math.min(MIGRATION_INTERVAL, generations - done);
+                pool.invoke(new EpochTask(population, 0, islands, epoch));
+                if (islands > 1 && done + epoch < generations) {
+                    migrate(population);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Island best = population[0];
+        for (Island island : population) {
+            if (island.cost[island.best()] < best.cost[best.best()]) {
+                best = island;
+            }
+        }
+        return Tours.close(graph, best.tour(best.best()));
+    }
+
+    /**
+     * Copies the best tours of every island over the worst tours of the next one. The migrants
+     * are all taken before any is placed, so the order of the islands does not matter.
+     */
+    private static void migrate(Island[] population) {
+        int count = Math.min(MIGRANTS, population[0].size - ELITE);
+        int[][][] migrants = new int[population.length][count][];
+        int[][] costs = new int[population.length][count];
+        for (int i = 0; i < population.length; i++) {
+            Island island = population[i];
+            island.sort();
+            for (int j = 0; j < count; j++) {
+                int index = island.indexAt(j);
+                migrants[i][j] = island.tour(index);
+                costs[i][j] = island.cost[index];
+            }
+        }
+        for (int i = 0; i < population.length; i++) {
+            Island target = population[(i + 1) % population.length];
+            target.sort();
+            for (int j = 0; j < count; j++) {
+                target.replace(target.indexAt(target.size - 1 - j), migrants[i][j], costs[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Evolves a range of islands for a number of generations.
+     */
+    private static class EpochTask extends RecursiveAction {
+        private final Island[] population;
+        private final int from;
+        private final int to;
+        private final int generations;
+
+        EpochTask(Island[] population, int from, int to, int generations) {
+            this.population = population;
+            this.from = from;
+            this.to = to;
+            this.generations = generations;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new EpochTask(population, from, middle, generations),
+                        new EpochTask(population, middle, to, generations));
+                return;
+            }
+            Island island = population[from];
+            for (int generation = 0; generation < generations; generation++) {
+                island.evolve();
+            }
+        }
+    }
+
+    /**
+     * Sub-population of one island: tours, their costs and the scratch space of a generation.
+     */
+    private static final class Island {
+        private final DistanceMatrix graph;
+        private final int n;
+        private final int size;
+        private final SplittableRandom random;
+
+        // Tour i occupies positions i * n .. i * n + n - 1.
+        private int[] tours;
+        private int[] cost;
+        private int[] nextTours;
+        private int[] nextCost;
+        private final long[] keys;
+        private boolean sorted;
+        private final long[] taken;
+
+        Island(DistanceMatrix graph, int size, SplittableRandom random) {
+            this.graph = graph;
+            this.n = graph.size();
+            this.size = size;
+            this.random = random;
+            this.tours = new int[size * n];
+            this.cost = new int[size];
+            this.nextTours = new int[size * n];
+            this.nextCost = new int[size];
+            this.keys = new long[size];
+            this.taken = new long[(n + 63) >>> 6];
+            for (int i = 0; i < size; i++) {
+                int offset = i * n;
+                for (int j = 0; j < n; j++) {
+                    tours[offset + j] = j;
+                }
+                // Fisher-Yates shuffle.
+                for (int j = n - 1; j > 0; j--) {
+                    int k = random.nextInt(j + 1);
+                    int swapped = tours[offset + j];
+                    tours[offset + j] = tours[offset + k];
+                    tours[offset + k] = swapped;
+                }
+                cost[i] = evaluate(tours, offset);
+            }
+        }
+
+        /**
+         * Replaces the population with the next generation.
+         */
+        void evolve() {
+            sort();
+            for (int i = 0; i < ELITE; i++) {
+                int index = indexAt(i);
+                System.arraycopy(tours, index * n, nextTours, i * n, n);
+                nextCost[i] = cost[index];
+            }
+            for (int i = ELITE; i < size; i++) {
+                int offset = i * n;
+                crossover(tournament() * n, tournament() * n, offset);
+                if (random.nextDouble() < MUTATION_RATE) {
+                    mutate(offset);
+                }
+                nextCost[i] = evaluate(nextTours, offset);
+            }
+
+            int[] swappedTours = tours;
+            tours = nextTours;
+            nextTours = swappedTours;
+            int[] swappedCost = cost;
+            cost = nextCost;
+            nextCost = swappedCost;
+            sorted = false;
+        }
+
+        /**
+         * @return Index of the cheapest of {@link #TOURNAMENT} random tours
+         */
+        private int tournament() {
+            int best = random.nextInt(size);
+            for (int i = 1; i < TOURNAMENT; i++) {
+                int other = random.nextInt(size);
+                if (cost[other] < cost[best]) {
+                    best = other;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Order crossover of the tours at offsets {@code first} and {@code second} into the next
+         * generation's tour at offset {@code child}.
+         */
+        private void crossover(int first, int second, int child) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            if (from > to) {
+                int swapped = from;
+                from = to;
+                to = swapped;
+            }
+            Arrays.fill(taken, 0L);
+            for (int i = from; i <= to; i++) {
+                int city = tours[first + i];
+                nextTours[child + i] = city;
+                taken[city >>> 6] |= 1L << city;
+            }
+            // Fill the positions after the slice, wrapping around, in the second parent's order.
+            int position = to + 1 == n ? 0 : to + 1;
+            for (int i = 0, j = position; i < n; i++, j = j + 1 == n ? 0 : j + 1) {
+                int city = tours[second + j];
+                if ((taken[city >>> 6] & 1L << city) == 0) {
+                    nextTours[child + position] = city;
+                    position = position + 1 == n ? 0 : position + 1;
+                }
+            }
+        }
+
+        /**
+         * Reverses a random slice of the next generation's tour at the given offset.
+         */
+        private void mutate(int offset) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            if (from > to) {
+                int swapped = from;
+                from = to;
+                to = swapped;
+            }
+            for (int i = offset + from, j = offset + to; i < j; i++, j--) {
+                int swapped = nextTours[i];
+                nextTours[i] = nextTours[j];
+                nextTours[j] = swapped;
+            }
+        }
+
+        private int evaluate(int[] population, int offset) {
+            int total = graph.get(population[offset + n - 1], population[offset]);
+            for (int i = offset + 1; i < offset + n; i++) {
+                total += graph.get(population[i - 1], population[i]);
+            }
+            return total;
+        }
+
+        /**
+         * Ranks the tours by cost, ties by index.
+         */
+        void sort() {
+            if (sorted) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                keys[i] = (long) cost[i] << 32 | i;
+            }
+            Arrays.sort(keys);
+            sorted = true;
+        }
+
+        /**
+         * @return Index of the tour of the given rank; {@link #sort()} must have been called
+         */
+        int indexAt(int rank) {
+            return (int) keys[rank];
+        }
+
+        /**
+         * @return Index of the cheapest tour
+         */
+        int best() {
+            sort();
+            return indexAt(0);
+        }
+
+        int[] tour(int index) {
+            return Arrays.copyOfRange(tours, index * n, index * n + n);
+        }
+
+        void replace(int index, int[] tour, int tourCost) {
+            System.arraycopy(tour, 0, tours, index * n, n);
+            cost[index] = tourCost;
+            sorted = false;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package polsl.tsp.complex;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Exact solver based on the Held-Karp dynamic programming algorithm.
+ * The tour always starts in city 0, so the table is indexed by subsets of the remaining
+ * {@code n - 1} cities and by the last city of the partial path. Both the cost table and the
+ * parent pointers are kept in flat primitive arrays, which gives O(2^n * n^2) time and
+ * O(2^n * n) memory instead of the O(n!) of plain enumeration.
+ * Works for asymmetric matrices as well, since every edge is read in its travel direction.
+ * <p>
+ * With a parallelism above one the table is filled layer by layer: all subsets of size k only
+ * depend on subsets of size k - 1, so each layer is split into contiguous ranges of the
+ * combinatorial number system and processed on a {@link ForkJoinPool}. Every cell is computed
+ * exactly like in the sequential mode, so both modes return the same {@link TspResult}.
+ */
+public class HeldKarpSolution implements TspAlgorithm {
+
+    /**
+     * Largest instance whose table still fits in a single Java array.
+     */
+    public static final int MAX_CITIES = 27;
+
+    /**
+     * Smallest number of subsets handed to a single fork-join task.
+     */
+    private static final int MIN_SUBSETS_PER_TASK = 256;
+
+    private final int parallelism;
+
+    public HeldKarpSolution() {
+        this(1);
+    }
+
+    /**
+     * @param parallelism Number of worker threads used to fill each subset layer, 1 for the sequential mode
+     */
+    public HeldKarpSolution(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
+        if (n == 1) {
+            return new TspResult(new int[]{0}, 0);
+        }
+        if (n > MAX_CITIES) {
+            throw new IllegalArgumentException("Held-Karp supports at most " + MAX_CITIES + " cities, got " + n);
+        }
+
+        // City c (1..n-1) is represented by bit c-1; cell [mask * m + j] holds the cheapest
+        // path that starts in 0, visits exactly the cities of mask and ends in city j+1.
+        int m = n - 1;
+        int fullMask = (1 << m) - 1;
+        int[] distances = graph.toFlatArray();
+        int[] cost = new int[(fullMask + 1) * m];
+        byte[] parent = new byte[cost.length];
+
+        for (int j = 0; j < m; j++) {
+            cost[(1 << j) * m + j] = distances[j + 1];
+            parent[(1 << j) * m + j] = -1;
+        }
+
+        if (parallelism == 1) {
+            for (int mask = 1; mask <= fullMask; mask++) {
+                if ((mask & (mask - 1)) != 0) { // single-city subsets are the base case
+                    fillSubset(distances, cost, parent, m, mask);
+                }
+            }
+        } else {
+            fillLayersInParallel(distances, cost, parent, m);
+        }
+
+        int minCost = Integer.MAX_VALUE;
+        int last = -1;
+        for (int j = 0; j < m; j++) {
+            int candidate = cost[fullMask * m + j] + distances[(j + 1) * n];
+            if (candidate < minCost) {
+                minCost = candidate;
+                last = j;
+            }
+        }
+
+        return new TspResult(reconstructPath(parent, m, fullMask, last), minCost);
+    }
+
+    /**
+     * Computes the table cells of one subset from the cells of its subsets one city smaller.
+     *
+     * @param distances Row-major copy of the distance matrix, with {@code n = m + 1} columns
+     * @param cost   Cost table, cells of all smaller subsets must already be filled
+     * @param parent Parent table with the same layout as the cost table
+     * @param m      Number of cities other than the start city
+     * @param mask   Subset to fill, with at least two cities
+     */
+    private static void fillSubset(int[] distances, int[] cost, byte[] parent, int m, int mask) {
+        int n = m + 1;
+        int base = mask * m;
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int j = Integer.numberOfTrailingZeros(rest);
+            int prevBase = (mask ^ (1 << j)) * m;
+            int best = Integer.MAX_VALUE;
+            int bestK = -1;
+            for (int others = mask ^ (1 << j); others != 0; others &= others - 1) {
+                int k = Integer.numberOfTrailingZeros(others);
+                int candidate = cost[prevBase + k] + distances[(k + 1) * n + j + 1];
+                if (candidate < best) {
+                    best = candidate;
+                    bestK = k;
+                }
+            }
+            cost[base + j] = best;
+            parent[base + j] = (byte) bestK;
+        }
+    }
+
+    /**
+     * Fills the table one cardinality layer at a time, splitting every layer across a fork-join pool.
+     */
+    private void fillLayersInParallel(int[] distances, int[] cost, byte[] parent, int m) {
+        int[][] binomial = binomialTable(m);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int size = 2; size <= m; size++) {
+                int layerSize = binomial[m][size];
+                int grain = Math.max(MIN_SUBSETS_PER_TASK, layerSize / (parallelism * 8));
+                pool.invoke(new LayerTask(distances, cost, parent, m, size, binomial, 0, layerSize, grain));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Pascal's triangle up to {@code m}, used to rank and unrank subsets of a layer.
+     */
+    static int[][] binomialTable(int m) {
+        int[][] binomial = new int[m + 1][m + 1];
+        for (int i = 0; i <= m; i++) {
+            binomial[i][0] = 1;
+            for (int j = 1; j <= i; j++) {
+                binomial[i][j] = binomial[i - 1][j - 1] + binomial[i - 1][j];
+            }
+        }
+        return binomial;
+    }
+
+    /**
+     * Returns the subset of the given size at the given rank. Ranks follow the combinatorial
+     * number system, which orders subsets of one size by their numeric value.
+     */
+    static int unrankSubset(int[][] binomial, int size, int rank) {
+        int mask = 0;
+        int bit = binomial.length - 1;
+        for (int i = size; i >= 1; i--) {
+            while (binomial[bit][i] > rank) {
+                bit--;
+            }
+            mask |= 1 << bit;
+            rank -= binomial[bit][i];
+        }
+        return mask;
+    }
+
+    /**
+     * Next larger subset with the same number of cities (Gosper's hack).
+     */
+    static int nextSubset(int mask) {
+        int lowest = mask & -mask;
+        int ripple = mask + lowest;
+        return (((ripple ^ mask) >>> 2) / lowest) | ripple;
+    }
+
+    /**
+     * Fills a contiguous rank range of one layer, walking the subsets in increasing numeric
+     * order so that consecutive tasks touch neighbouring parts of the tables.
+     */
+    private static class LayerTask extends RecursiveAction {
+        private final int[] distances;
+        private final int[] cost;
+        private final byte[] parent;
+        private final int m;
+        private final int size;
+        private final int[][] binomial;
+        private final int fromRank;
+        private final int toRank;
+        private final int grain;
+
+        LayerTask(int[] distances, int[] cost, byte[] parent, int m, int size, int[][] binomial,
+                  int fromRank, int toRank, int grain) {
+            this.distances = distances;
+            this.cost = cost;
+            this.parent = parent;
+            this.m = m;
+            this.size = size;
+            this.binomial = binomial;
+            this.fromRank = fromRank;
+            this.toRank = toRank;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRank - fromRank > grain) {
+                int middle = (fromRank + toRank) >>> 1;
+                invokeAll(new LayerTask(distances, cost, parent, m, size, binomial, fromRank, middle, grain),
+                        new LayerTask(distances, cost, parent, m, size, binomial, middle, toRank, grain));
+                return;
+            }
+            int mask = unrankSubset(binomial, size, fromRank);
+            for (int rank = fromRank; rank < toRank; rank++) {
+                fillSubset(distances, cost, parent, m, mask);
+                if (rank + 1 < toRank) {
+                    mask = nextSubset(mask);
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves a random instance with an increasing number of threads and prints the speed-up
+     * over the sequential mode.
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 22;
+        Random random = new Random(42);
+        int[][] distances = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distances[i][j] = i == j ? 0 : 1 + random.nextInt(1000);
+            }
+        }
+        DistanceMatrix graph = DistanceMatrix.of(distances);
+
+        long sequentialTime = 0;
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores) : cores + 1) {
+            long startTime = System.nanoTime();
+            TspResult result = new HeldKarpSolution(threads).solveTSP(graph);
+            long elapsed = System.nanoTime() - startTime;
+            if (threads == 1) {
+                sequentialTime = elapsed;
+            }
+            System.out.println("Threads = " + threads + ", Cost = " + result.getCost()
+                    + ", Time = " + elapsed / 1_000_000 + " ms"
+                    + ", Speed-up = " + String.format("%.2f", (double) sequentialTime / elapsed));
+        }
+    }
+
+    /**
+     * Walks the parent pointers back from the full subset to rebuild the tour.
+     *
+     * @param parent   Parent table with the same layout as the cost table
+     * @param m        Number of cities other than the start city
+     * @param fullMask Subset containing all cities except the start city
+     * @param last     Bit index of the city visited right before returning to 0
+     * @return The closed tour, starting and ending in city 0
+     */
+    private int[] reconstructPath(byte[] parent, int m, int fullMask, int last) {
+        int[] path = new int[m + 2];
+        int mask = fullMask;
+        int city = last;
+        for (int position = m; position >= 1; position--) {
+            path[position] = city + 1;
+            int previous = parent[mask * m + city];
+            mask ^= 1 << city;
+            city = previous;
+        }
+        path[0] = 0;
+        path[m + 1] = 0;
+        return path;
+    }
+}
@@ -0,0 +1,32 @@
+package polsl.tsp.complex;
+
+/**
+ * Distance matrix storing every cost as a plain {@code int}, used when the costs span too wide a
+ * range for a 16-bit code.
+ */
+final class IntDistanceMatrix extends ArrayDistanceMatrix {
+
+    private final int[] distances;
+
+    IntDistanceMatrix(int size, boolean triangular, int entries) {
+        super(size, triangular);
+        this.distances = new int[entries];
+    }
+
+    /**
+     * @return Backing array, shared rather than copied
+     */
+    int[] distances() {
+        return distances;
+    }
+
+    @Override
+    public int get(int from, int to) {
+        return distances[index(from, to)];
+    }
+
+    @Override
+    void set(int index, int value) {
+        distances[index] = value;
+    }
+}
@@ -0,0 +1,441 @@
+package polsl.tsp.complex;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * k-d tree over points of any dimension, answering k-nearest-neighbour queries by Euclidean
+ * distance in O(log n + k) expected time instead of the O(n) of a full scan. In two dimensions it
+ * also finds the nearest points within each quadrant around a point, which keeps candidate lists
+ * connected across clusters where the plain nearest neighbours all lie on one side.
+ * <p>
+ * The tree is implicit: the points are permuted so that every range {@code [low, high)} has its
+ * splitting point in the middle, with no larger coordinate on the left and no smaller one on the
+ * right, so it takes two {@code int} arrays on top of the coordinates. Each range is split along
+ * the dimension of widest spread, and the median is found by quickselect, so building takes
+ * O(n log n) expected time.
+ * <p>
+ * Queries allocate their own scratch space, so instances are safe to share between threads.
+ */
+public final class KdTree {
+
+    private final double[][] coordinates;
+    private final int[] order;
+    private final byte[] splitDimension;
+
+    /**
+     * @param coordinates One array per dimension, holding that coordinate of every point; the
+     *                    arrays are not copied, so they must not be modified afterwards
+     * @throws IllegalArgumentException if no dimension is given, or the arrays are null, empty
+     *                                  or of different lengths
+     */
+    public KdTree(double[]... coordinates) {
+        if (coordinates == null || coordinates.length == 0 || coordinates.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Points must have between 1 and " + Byte.MAX_VALUE + " dimensions");
+        }
+        for (double[] dimension : coordinates) {
+            if (dimension == null || dimension.length == 0 || dimension.length != coordinates[0].length) {
+                throw new IllegalArgumentException("Every dimension must hold one coordinate per point");
+            }
+        }
+        this.coordinates = coordinates;
+        int n = coordinates[0].length;
+        this.order = new int[n];
+        this.splitDimension = new byte[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        build(0, n);
+    }
+
+    /**
+     * @return Number of points
+     */
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * @return Point at a position of the tree; going through the positions in order visits the
+     * points subtree by subtree, so consecutive points are mostly close to each other
+     */
+    public int pointAt(int position) {
+        return order[position];
+    }
+
+    private void build(int low, int high) {
+        while (high - low > 1) {
+            int dimension = widestDimension(low, high);
+            int middle = (low + high) >>> 1;
+            select(low, high, middle, coordinates[dimension]);
+            splitDimension[middle] = (byte) dimension;
+            // Recurse into the smaller half and loop over the larger one to bound the stack.
+            if (middle - low < high - middle - 1) {
+                build(low, middle);
+                low = middle + 1;
+            } else {
+                build(middle + 1, high);
+                high = middle;
+            }
+        }
+    }
+
+    private int widestDimension(int low, int high) {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int d = 0; d < coordinates.length; d++) {
+            double[] values = coordinates[d];
+            double minimum = Double.POSITIVE_INFINITY;
+            double maximum = Double.NEGATIVE_INFINITY;
+            for (int i = low; i < high; i++) {
+                double value = values[order[i]];
+                minimum = Math.min(minimum, value);
+                maximum = Math.max(maximum, value);
+            }
+            if (maximum - minimum > widestSpread) {
+                widestSpread = maximum - minimum;
+                widest = d;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Hoare-style quickselect: permutes {@code order[low, high)} so that position {@code k} holds
+     * the point it would hold if the range were sorted by {@code values}.
+     */
+    private void select(int low, int high, int k, double[] values) {
+        int left = low;
+        int right = high - 1;
+        while (left < right) {
+            double pivot = values[order[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[order[i]] < pivot) {
+                    i++;
+                }
+                while (values[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the points nearest to a point of the tree, excluding the point itself.
+     *
+     * @param point      Index of the query point
+     * @param k          Maximum number of neighbours
+     * @param neighbours Receives the neighbours, nearest first; must hold at least {@code k} entries
+     * @return Number of neighbours found, {@code min(k, size() - 1)}
+     */
+    public int nearest(int point, int k, int[] neighbours) {
+        return search(point, -1, k, neighbours);
+    }
+
+    /**
+     * Finds the points nearest to a point of the tree within one of its quadrants. Quadrant
+     * {@code q} holds the points whose first coordinate is smaller than the query's if bit 0 of
+     * {@code q} is set, and not smaller otherwise, and likewise for the second coordinate and bit
+     * 1; points at the same position as the query fall into quadrant 0.
+     *
+     * @param point      Index of the query point
+     * @param quadrant   Quadrant from 0 to 3
+     * @param k          Maximum number of neighbours
+     * @param neighbours Receives the neighbours, nearest first; must hold at least {@code k} entries
+     * @return Number of neighbours found
+     * @throws IllegalStateException if the points are not two-dimensional
+     */
+    public int nearestInQuadrant(int point, int quadrant, int k, int[] neighbours) {
+        if (coordinates.length != 2) {
+            throw new IllegalStateException("Quadrants are only defined in two dimensions");
+        }
+        return search(point, quadrant & 3, k, neighbours);
+    }
+
+    private int search(int point, int quadrant, int k, int[] neighbours) {
+        if (k <= 0) {
+            return 0;
+        }
+        Query query = new Query(point, quadrant, k, null);
+        query.visit(0, order.length);
+        return query.drain(neighbours);
+    }
+
+    /**
+     * State of a single query: the best points so far in a bounded max-heap keyed by squared
+     * distance, so the worst of them is replaced first.
+     */
+    private final class Query {
+        private final int point;
+        private final int quadrant;
+        private final Remaining remaining;
+        private final double[] heapDistance;
+        private final int[] heapPoint;
+        private int count;
+
+        /**
+         * @param remaining Points to search among, null for all of them
+         */
+        Query(int point, int quadrant, int k, Remaining remaining) {
+            this.point = point;
+            this.quadrant = quadrant;
+            this.remaining = remaining;
+            this.heapDistance = new double[k];
+            this.heapPoint = new int[k];
+        }
+
+        private double bound() {
+            return count < heapPoint.length ? Double.POSITIVE_INFINITY : heapDistance[0];
+        }
+
+        void visit(int low, int high) {
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (remaining != null && remaining.count[middle] == 0) {
+                    return;
+                }
+                int candidate = order[middle];
+                if (candidate != point && (remaining == null || !remaining.removed[candidate]) && inQuadrant(candidate)) {
+                    offer(candidate, squaredDistance(candidate));
+                }
+                if (high - low == 1) {
+                    return;
+                }
+                int dimension = splitDimension[middle];
+                double difference = coordinates[dimension][point] - coordinates[dimension][candidate];
+                boolean leftFirst = difference <= 0;
+                // The left half has no coordinate above the split, the right half none below it.
+                boolean leftAllowed = quadrant < 0 || dimension > 1 || (quadrant >> dimension & 1) == 1 || difference <= 0;
+                boolean rightAllowed = quadrant < 0 || dimension > 1 || (quadrant >> dimension & 1) == 0 || difference > 0;
+                if (leftFirst) {
+                    if (leftAllowed) {
+                        visit(low, middle);
+                    }
+                    if (!rightAllowed || difference * difference >= bound()) {
+                        return;
+                    }
+                    low = middle + 1;
+                } else {
+                    if (rightAllowed) {
+                        visit(middle + 1, high);
+                    }
+                    if (!leftAllowed || difference * difference >= bound()) {
+                        return;
+                    }
+                    high = middle;
+                }
+            }
+        }
+
+        private boolean inQuadrant(int candidate) {
+            if (quadrant < 0) {
+                return true;
+            }
+            boolean xSmaller = coordinates[0][candidate] < coordinates[0][point];
+            boolean ySmaller = coordinates[1][candidate] < coordinates[1][point];
+            return ((xSmaller ? 1 : 0) | (ySmaller ? 2 : 0)) == quadrant;
+        }
+
+        private double squaredDistance(int candidate) {
+            double sum = 0;
+            for (double[] values : coordinates) {
+                double difference = values[point] - values[candidate];
+                sum += difference * difference;
+            }
+            return sum;
+        }
+
+        private void offer(int candidate, double distance) {
+            if (count < heapPoint.length) {
+                int i = count++;
+                while (i > 0 && heapDistance[(i - 1) / 2] < distance) {
+                    heapDistance[i] = heapDistance[(i - 1) / 2];
+                    heapPoint[i] = heapPoint[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heapDistance[i] = distance;
+                heapPoint[i] = candidate;
+            } else if (distance < heapDistance[0]) {
+                siftDown(candidate, distance, count);
+            }
+        }
+
+        /**
+         * Replaces the root of the heap of the given size and restores the heap order.
+         */
+        private void siftDown(int candidate, double distance, int size) {
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heapDistance[child + 1] > heapDistance[child]) {
+                    child++;
+                }
+                if (heapDistance[child] <= distance) {
+                    break;
+                }
+                heapDistance[i] = heapDistance[child];
+                heapPoint[i] = heapPoint[child];
+                i = child;
+            }
+            heapDistance[i] = distance;
+            heapPoint[i] = candidate;
+        }
+
+        /**
+         * Empties the heap into the output, nearest first.
+         */
+        int drain(int[] neighbours) {
+            int found = count;
+            for (int size = count; size > 0; size--) {
+                neighbours[size - 1] = heapPoint[0];
+                siftDown(heapPoint[size - 1], heapDistance[size - 1], size - 1);
+            }
+            return found;
+        }
+    }
+
+    /**
+     * @return Subset of the points that starts with all of them and supports removal, e.g. to
+     * find the nearest unvisited city while a tour is built
+     */
+    public Remaining remaining() {
+        return new Remaining();
+    }
+
+    /**
+     * Points of the tree not removed yet. Removal keeps the number of remaining points of every
+     * subtree, so queries skip emptied subtrees and stay fast when most points are gone. Each
+     * removal takes O(log n) time. Instances are not thread-safe.
+     */
+    public final class Remaining {
+        private final int[] count;
+        private final boolean[] removed;
+        private final int[] position;
+
+        private Remaining() {
+            int n = order.length;
+            count = new int[n];
+            removed = new boolean[n];
+            position = new int[n];
+            for (int i = 0; i < n; i++) {
+                position[order[i]] = i;
+            }
+            countAll(0, n);
+        }
+
+        /**
+         * Puts every removed point back.
+         */
+        public void reset() {
+            Arrays.fill(removed, false);
+            countAll(0, order.length);
+        }
+
+        /**
+         * Stores the number of points of each subtree at the position of its splitting point.
+         */
+        private void countAll(int low, int high) {
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                count[middle] = high - low;
+                countAll(low, middle);
+                low = middle + 1;
+            }
+        }
+
+        /**
+         * Removes a point, unless it has already been removed.
+         */
+        public void remove(int point) {
+            if (removed[point]) {
+                return;
+            }
+            removed[point] = true;
+            int target = position[point];
+            int low = 0;
+            int high = order.length;
+            while (true) {
+                int middle = (low + high) >>> 1;
+                count[middle]--;
+                if (target == middle) {
+                    return;
+                }
+                if (target < middle) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+        }
+
+        /**
+         * @return Whether a point has not been removed
+         */
+        public boolean contains(int point) {
+            return !removed[point];
+        }
+
+        /**
+         * @return Remaining point nearest to a point of the tree, other than the point itself,
+         * or -1 if there is none
+         */
+        public int nearest(int point) {
+            Query query = new Query(point, -1, 1, this);
+            query.visit(0, order.length);
+            return query.count > 0 ? query.heapPoint[0] : -1;
+        }
+
+        /**
+         * Passes every remaining point within a distance of a point of the tree, other than the
+         * point itself, to an action, in no particular order.
+         */
+        public void forEachWithin(int point, double radius, IntConsumer action) {
+            forEachWithin(point, radius * radius, action, 0, order.length);
+        }
+
+        private void forEachWithin(int point, double squaredRadius, IntConsumer action, int low, int high) {
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (count[middle] == 0) {
+                    return;
+                }
+                int candidate = order[middle];
+                if (candidate != point && !removed[candidate]) {
+                    double sum = 0;
+                    for (double[] values : coordinates) {
+                        double difference = values[point] - values[candidate];
+                        sum += difference * difference;
+                    }
+                    if (sum <= squaredRadius) {
+                        action.accept(candidate);
+                    }
+                }
+                int dimension = splitDimension[middle];
+                double difference = coordinates[dimension][point] - coordinates[dimension][candidate];
+                if (difference <= 0 || difference * difference <= squaredRadius) {
+                    forEachWithin(point, squaredRadius, action, low, middle);
+                }
+                if (difference < 0 && difference * difference > squaredRadius) {
+                    return;
+                }
+                low = middle + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package polsl.tsp.complex;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Lin-Kernighan heuristic: variable-depth search that builds a move out of a chain of 2-opt
+ * steps, as long as the chain keeps a positive partial gain, and keeps the prefix of the chain
+ * that shortens the tour the most.
+ * <p>
+ * A search starts by removing an edge {@code (t1, t2)} of the tour, which leaves a path from
+ * {@code t2} to {@code t1}. Each step adds an edge from the free end {@code t2} to one of its
+ * {@link CandidateLists candidates} {@code t3} and removes the edge from {@code t3} to its
+ * neighbour {@code t4} that keeps a path, so that {@code t4} becomes the free end; closing the
+ * path with {@code (t4, t1)} gives a tour at every step. The step is applied to the tour right
+ * away as a segment reversal of a {@link Tour} suited to the number of cities, and undone when
+ * the search backtracks. The first steps try the few
+ * best candidates in turn, deeper steps only the best one, and an edge added by the move is
+ * never removed again. The depth of a move is bounded.
+ * <p>
+ * Cities are looked at from a queue, as in {@link TwoOptImprover}, until no move improves the
+ * tour. Optionally the local optimum is then perturbed by a number of random segment-local
+ * double-bridge kicks, each followed by Lin-Kernighan from the cities around it, and undone unless
+ * the tour came back no longer than before ("chained Lin-Kernighan"). The random generator is
+ * seeded, so results are reproducible.
+ * <p>
+ * Segment reversals change the cost of a tour of an asymmetric matrix, so such tours are improved
+ * with {@link OrOptImprover} instead.
+ */
+public class LinKernighanSolution implements TspAlgorithm, TourImprover {
+
+    private static final int NEIGHBOURS = 10;
+    private static final int MAX_DEPTH = 50;
+    private static final int[] BREADTH = {5, 3, 1};
+    private static final int KICK_WINDOW = 50;
+    private static final long SEED = 42;
+
+    /**
+     * Every tried step is a reversal, so the two-level list pays off from a few ten thousand
+     * cities.
+     */
+    private static final int TWO_LEVEL_FROM = 25_000;
+
+    private final int neighbours;
+    private final int maxDepth;
+    private final int kicks;
+
+    /**
+     * Plain Lin-Kernighan, without kicks.
+     */
+    public LinKernighanSolution() {
+        this(NEIGHBOURS, MAX_DEPTH, 0);
+    }
+
+    /**
+     * @param neighbours Length of the candidate list of each city
+     * @param maxDepth   Maximum number of steps of a move
+     * @param kicks      Number of double-bridge kicks tried after reaching a local optimum
+     */
+    public LinKernighanSolution(int neighbours, int maxDepth, int kicks) {
+        if (neighbours < 1 || maxDepth < 1 || kicks < 0) {
+            throw new IllegalArgumentException("Invalid parameters: " + neighbours + " neighbours, depth " + maxDepth
+                    + ", " + kicks + " kicks");
+        }
+        this.neighbours = neighbours;
+        this.maxDepth = maxDepth;
+        this.kicks = kicks;
+    }
+
+    /**
+     * Improves a nearest-neighbour tour.
+     */
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        return improve(graph, new FastNearestNeighbourSolution().solveTSP(graph));
+    }
+
+    @Override
+    public TspResult improve(DistanceMatrix graph, TspResult tour) {
+        if (!graph.isSymmetric()) {
+            return new OrOptImprover(neighbours).improve(graph, tour);
+        }
+        int[] order = Tours.open(graph, tour);
+        if (order.length >= 5) {
+            Tour improved = Tour.of(order, TWO_LEVEL_FROM);
+            Search search = new Search(graph, CandidateLists.nearest(graph, neighbours), improved, maxDepth);
+            search.run(false);
+            search.kick(kicks, new Random(SEED));
+            order = improved.toArray();
+        }
+        return Tours.close(graph, order);
+    }
+
+    /**
+     * State of one run over a tour, which it rearranges.
+     */
+    private static final class Search {
+        private final DistanceMatrix graph;
+        private final CandidateLists candidates;
+        private final int n;
+        private final int maxDepth;
+        private final Tour tour;
+        private final int[] queue;
+        private final boolean[] queued;
+        private int queueHead;
+        private int queueSize;
+
+        /**
+         * Reversals applied since the last commit, as the city before the path and the path's
+         * first and last city.
+         */
+        private int[] log = new int[96];
+        private int logSize;
+
+        /**
+         * Edges added by the move being built, as pairs of cities.
+         */
+        private final int[] added;
+        private int addedCount;
+
+        /**
+         * Alternatives of the steps that try more than one candidate: {@code t3} and the gain.
+         */
+        private final int[][] alternatives;
+        private final int[][] alternativeGains;
+
+        private int bestClose;
+        private int bestLogSize;
+        private int bestDepth;
+        private int bestEnd;
+
+        Search(DistanceMatrix graph, CandidateLists candidates, Tour tour, int maxDepth) {
+            this.graph = graph;
+            this.candidates = candidates;
+            this.n = tour.size();
+            this.maxDepth = maxDepth;
+            this.tour = tour;
+            this.queue = new int[n];
+            this.queued = new boolean[n];
+            this.added = new int[2 * maxDepth];
+            this.alternatives = new int[BREADTH.length][];
+            this.alternativeGains = new int[BREADTH.length][];
+            for (int level = 0; level < BREADTH.length; level++) {
+                alternatives[level] = new int[BREADTH[level]];
+                alternativeGains[level] = new int[BREADTH[level]];
+            }
+            for (int i = 0, city = 0; i < n; i++, city = tour.next(city)) {
+                push(city);
+            }
+        }
+
+        /**
+         * Runs Lin-Kernighan from the queued cities until none of them improves the tour.
+         *
+         * @param keepLog Whether to keep the applied moves in the log, to be undone
+         * @return Total gain
+         */
+        int run(boolean keepLog) {
+            int gain = 0;
+            while (queueSize > 0) {
+                int city = queue[queueHead];
+                queueHead = queueHead + 1 == n ? 0 : queueHead + 1;
+                queueSize--;
+                queued[city] = false;
+                int improvement = improveCity(city);
+                if (improvement > 0) {
+                    gain += improvement;
+                    push(city);
+                    if (!keepLog) {
+                        logSize = 0;
+                    }
+                }
+            }
+            return gain;
+        }
+
+        /**
+         * Applies random segment-local double bridges, each followed by Lin-Kernighan and undone
+         * if the tour got longer.
+         */
+        void kick(int kicks, Random random) {
+            int window = Math.min(KICK_WINDOW, n - 2);
+            for (int kick = 0; kick < kicks; kick++) {
+                // Cut after a, x and y, at most a window apart: a b .. x c .. y z becomes
+                // a c .. y b .. x z.
+                int a = random.nextInt(n);
+                int first = 1 + random.nextInt(window - 1);
+                int second = first + 1 + random.nextInt(window - first);
+                int x = a;
+                for (int i = 0; i < first; i++) {
+                    x = next(x);
+                }
+                int y = x;
+                for (int i = first; i < second; i++) {
+                    y = next(y);
+                }
+                int b = next(a);
+                int c = next(x);
+                int z = next(y);
+                int delta = graph.get(a, c) + graph.get(y, b) + graph.get(x, z)
+                        - graph.get(a, b) - graph.get(x, c) - graph.get(y, z);
+
+                logSize = 0;
+                // Three 2-opt moves: a y .. c x .. b z, then a c .. y x .. b z, then the result.
+                twoOptMove(a, b, y, z);
+                twoOptMove(a, y, c, x);
+                twoOptMove(y, x, b, z);
+                push(a);
+                push(b);
+                push(x);
+                push(c);
+                push(y);
+                push(z);
+                if (run(true) < delta) {
+                    undo(0);
+                }
+            }
+            logSize = 0;
+        }
+
+        /**
+         * Replaces the edges {@code (a, b)} and {@code (c, d)}, along the same direction, by
+         * {@code (a, c)} and {@code (b, d)}.
+         */
+        private void twoOptMove(int a, int b, int c, int d) {
+            if (next(a) == b) {
+                reverse(b, c);
+            } else {
+                reverse(c, b);
+            }
+        }
+
+        private void push(int city) {
+            if (!queued[city]) {
+                queued[city] = true;
+                int tail = queueHead + queueSize;
+                queue[tail >= n ? tail - n : tail] = city;
+                queueSize++;
+            }
+        }
+
+        private int next(int city) {
+            return tour.next(city);
+        }
+
+        private int previous(int city) {
+            return tour.previous(city);
+        }
+
+        /**
+         * Searches for an improving move that removes an edge at {@code t1}, on either side, and
+         * applies the best one found.
+         *
+         * @return Gain of the applied move, 0 if none was found
+         */
+        private int improveCity(int t1) {
+            for (int side = 0; side < 2; side++) {
+                int t2 = side == 0 ? next(t1) : previous(t1);
+                bestClose = 0;
+                bestLogSize = logSize;
+                addedCount = 0;
+                step(t1, t2, graph.get(t1, t2), 0);
+                if (bestClose > 0) {
+                    undo(bestLogSize);
+                    // Every end of a changed edge is looked at again.
+                    for (int i = 0; i < 2 * bestDepth; i++) {
+                        push(added[i]);
+                    }
+                    push(bestEnd);
+                    return bestClose;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Extends the move by one step from the free end {@code t2}, then deeper, and records
+         * the best closed tour in {@link #bestClose} and {@link #bestLogSize}.
+         *
+         * @param gain Cost of the removed edges minus the cost of the added ones so far
+         * @return Whether an improving move was found, in which case the tour is left as it is
+         */
+        private boolean step(int t1, int t2, int gain, int depth) {
+            boolean forward = next(t1) == t2;
+            int breadth = BREADTH[Math.min(depth, BREADTH.length - 1)];
+            int[] choices = alternatives[Math.min(depth, BREADTH.length - 1)];
+            int[] choiceGains = alternativeGains[Math.min(depth, BREADTH.length - 1)];
+            int count = 0;
+            int candidateCount = candidates.count(t2);
+            for (int rank = 0; rank < candidateCount; rank++) {
+                int t3 = candidates.get(t2, rank);
+                int partial = gain - graph.get(t2, t3);
+                if (partial <= 0) {
+                    break;
+                }
+                int t4 = forward ? previous(t3) : next(t3);
+                if (t3 == t1 || t4 == t2 || isAdded(t3, t4)) {
+                    continue;
+                }
+                // Keep the best few by the gain after removing (t3, t4), best first.
+                int value = partial + graph.get(t3, t4);
+                int i = count < breadth ? count++ : breadth;
+                while (i > 0 && choiceGains[i - 1] < value) {
+                    if (i < breadth) {
+                        choices[i] = choices[i - 1];
+                        choiceGains[i] = choiceGains[i - 1];
+                    }
+                    i--;
+                }
+                if (i < breadth) {
+                    choices[i] = t3;
+                    choiceGains[i] = value;
+                }
+            }
+            // Only the steps that try a single candidate share their arrays with deeper steps.
+            for (int choice = 0; choice < count; choice++) {
+                int t3 = choices[choice];
+                int newGain = choiceGains[choice];
+                int t4 = forward ? previous(t3) : next(t3);
+                int logStart = logSize;
+                if (forward) {
+                    reverse(t2, t4);
+                } else {
+                    reverse(t4, t2);
+                }
+                added[2 * depth] = t2;
+                added[2 * depth + 1] = t3;
+                addedCount = depth + 1;
+
+                int close = newGain - graph.get(t4, t1);
+                if (close > bestClose) {
+                    bestClose = close;
+                    bestLogSize = logSize;
+                    bestDepth = depth + 1;
+                    bestEnd = t4;
+                }
+                if (depth + 1 < maxDepth && step(t1, t4, newGain, depth + 1)) {
+                    return true;
+                }
+                if (bestClose > 0) {
+                    return true;
+                }
+                undo(logStart);
+                addedCount = depth;
+            }
+            return false;
+        }
+
+        private boolean isAdded(int a, int b) {
+            for (int i = 0; i < addedCount; i++) {
+                int u = added[2 * i];
+                int v = added[2 * i + 1];
+                if ((u == a && v == b) || (u == b && v == a)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Undoes the logged reversals down to the given log size.
+         */
+        private void undo(int size) {
+            while (logSize > size) {
+                logSize -= 3;
+                int before = log[logSize];
+                int from = log[logSize + 1];
+                int to = log[logSize + 2];
+                // The city before the path is now next to its last city, on either side.
+                if (next(before) == to) {
+                    tour.reverse(to, from);
+                } else {
+                    tour.reverse(from, to);
+                }
+            }
+        }
+
+        /**
+         * Reverses the path from {@code from} forward to {@code to} and logs it.
+         */
+        private void reverse(int from, int to) {
+            if (logSize + 3 > log.length) {
+                log = Arrays.copyOf(log, 2 * log.length);
+            }
+            log[logSize++] = previous(from);
+            log[logSize++] = from;
+            log[logSize++] = to;
+            tour.reverse(from, to);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package polsl.tsp.complex;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Heuristic that builds a tour with a construction algorithm and hands it through a chain of
+ * {@link TourImprover tour improvers}, each starting from the tour of the previous one.
+ */
+public class LocalSearchSolution implements TspAlgorithm {
+
+    private final TspAlgorithm construction;
+    private final List<TourImprover> improvers;
+
+    /**
+     * Nearest-neighbour construction followed by 2-opt.
+     */
+    public LocalSearchSolution() {
+        this(new FastNearestNeighbourSolution(), new TwoOptImprover());
+    }
+
+    /**
+     * @param construction Algorithm that builds the initial tour
+     * @param improvers    Improvers applied in order
+     */
+    public LocalSearchSolution(TspAlgorithm construction, TourImprover... improvers) {
+        if (construction == null || improvers == null || Arrays.asList(improvers).contains(null)) {
+            throw new IllegalArgumentException("Construction and improvers must not be null");
+        }
+        this.construction = construction;
+        this.improvers = List.of(improvers);
+    }
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        TspResult result = construction.solveTSP(graph);
+        for (TourImprover improver : improvers) {
+            result = improver.improve(graph, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,425 @@
+package polsl.tsp.complex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Distance matrix read straight from a memory-mapped file, for instances too large for the heap.
+ * The costs live in the operating system's page cache rather than in Java objects, so they add
+ * nothing to garbage collection, and several JVMs opening the same file share a single copy of
+ * it. The mapping is read-only; the file is written once by {@link #write(DistanceMatrix, Path)}.
+ * <p>
+ * The same file format also holds coordinate sets, so any instance, e.g. one converted from
+ * TSPLIB by {@link #convert(Path, Path)}, is parsed once and then loaded by {@link #load(Path)}.
+ * Coordinates take O(n) space and are copied into a {@link CoordinateDistanceMatrix}.
+ * <p>
+ * File layout, little-endian: a {@value #HEADER_BYTES}-byte header, then the data.
+ * <pre>
+ *  0  magic number "TSPM"           4  format version
+ *  5  width of a value in bytes     6  layout: 0 full matrix, 1 upper triangle, 2 coordinates
+ *  7  1 if the costs are symmetric  8  number of cities
+ * 12  offset of 16-bit codes       16  step of 16-bit codes
+ * 20  CRC32C of the file, computed with this field set to 0
+ * 24  metric ordinal of coordinates
+ * </pre>
+ * Costs are stored row by row, either the full matrix or the upper triangle with the diagonal,
+ * as 32-bit values or as 16-bit codes decoding as {@code offset + step * code}, like
+ * {@link ScaledDistanceMatrix}. Coordinates are stored as 64-bit doubles, all first coordinates
+ * and then all second ones, in radians for {@link CoordinateDistanceMatrix.Metric#GEO}. A single
+ * mapped buffer is limited to 2 GB, so the costs are mapped in chunks of 1 GB; a cost never
+ * straddles two chunks. Files of any other format version are rejected.
+ * <p>
+ * Reads only use absolute positions, so instances are safe to share between threads. The file
+ * stays mapped until the instance is garbage collected.
+ */
+public final class MappedDistanceMatrix extends DistanceMatrix {
+
+    static final int HEADER_BYTES = 32;
+
+    private static final int MAGIC = 0x5453504D; // "TSPM"
+    private static final byte VERSION = 2;
+    private static final int CHECKSUM_POSITION = 20;
+    private static final int LAYOUT_FULL = 0;
+    private static final int LAYOUT_TRIANGLE = 1;
+    private static final int LAYOUT_COORDINATES = 2;
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final boolean triangular;
+    private final boolean symmetric;
+    private final int width;
+    private final int offset;
+    private final int step;
+    private final ByteBuffer[] chunks;
+
+    private MappedDistanceMatrix(Header header, ByteBuffer[] chunks) {
+        super(header.size);
+        this.triangular = header.layout == LAYOUT_TRIANGLE;
+        this.symmetric = triangular || header.symmetric;
+        this.width = header.width;
+        this.offset = header.offset;
+        this.step = header.step;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Fields of a file header, checked against the size of the file.
+     */
+    private static final class Header {
+        private final ByteBuffer bytes;
+        private final int width;
+        private final int layout;
+        private final boolean symmetric;
+        private final int size;
+        private final int offset;
+        private final int step;
+        private final int checksum;
+        private final int metric;
+
+        Header(Path file, FileChannel channel) throws IOException {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(file + " is not a distance matrix file");
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            int version = bytes.get(4);
+            width = bytes.get(5);
+            layout = bytes.get(6);
+            symmetric = bytes.get(7) != 0;
+            size = bytes.getInt(8);
+            offset = bytes.getInt(12);
+            step = bytes.getInt(16);
+            checksum = bytes.getInt(CHECKSUM_POSITION);
+            metric = bytes.getInt(24);
+            boolean validWidth = layout == LAYOUT_COORDINATES
+                    ? width == Double.BYTES && metric >= 0 && metric < CoordinateDistanceMatrix.Metric.values().length
+                    : width == Character.BYTES || width == Integer.BYTES;
+            boolean validLayout = layout == LAYOUT_FULL || layout == LAYOUT_TRIANGLE || layout == LAYOUT_COORDINATES;
+            if (bytes.getInt(0) != MAGIC || version != VERSION || !validLayout || !validWidth || size <= 0) {
+                throw new IOException(file + " is not a distance matrix file");
+            }
+            if (channel.size() != HEADER_BYTES + dataBytes()) {
+                throw new IOException(file + " is truncated: expected " + (HEADER_BYTES + dataBytes())
+                        + " bytes, found " + channel.size());
+            }
+        }
+
+        long dataBytes() {
+            long values = layout == LAYOUT_COORDINATES ? 2L * size : entries(size, layout == LAYOUT_TRIANGLE);
+            return values * width;
+        }
+
+        /**
+         * Compares the stored checksum with the one of the header and the mapped data.
+         *
+         * @throws IOException if the checksums differ
+         */
+        void verify(Path file, ByteBuffer... data) throws IOException {
+            CRC32C crc = new CRC32C();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).put(bytes.duplicate().position(0));
+            crc.update(header.putInt(CHECKSUM_POSITION, 0).flip());
+            for (ByteBuffer buffer : data) {
+                crc.update(buffer.duplicate().position(0));
+            }
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException(file + " is corrupt: checksum mismatch");
+            }
+        }
+    }
+
+    /**
+     * Maps a matrix file written by {@link #write(DistanceMatrix, Path)} read-only, after
+     * verifying its checksum.
+     *
+     * @throws IOException if the file cannot be read, is not a valid matrix file or is corrupt
+     */
+    public static MappedDistanceMatrix open(Path file) throws IOException {
+        return open(file, true);
+    }
+
+    /**
+     * Maps a matrix file written by {@link #write(DistanceMatrix, Path)} read-only.
+     *
+     * @param verify Whether to verify the checksum, which reads the whole file once; without it,
+     *               only the pages that are read are loaded
+     * @throws IOException if the file cannot be read, is not a valid matrix file, holds
+     *                     coordinates or fails verification
+     */
+    public static MappedDistanceMatrix open(Path file, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = new Header(file, channel);
+            if (header.layout == LAYOUT_COORDINATES) {
+                throw new IOException(file + " holds coordinates, not a distance matrix");
+            }
+            return open(file, channel, header, verify);
+        }
+    }
+
+    /**
+     * Loads an instance file: a distance matrix is mapped as by {@link #open(Path)}, and a
+     * coordinate set is read into a {@link CoordinateDistanceMatrix}.
+     *
+     * @throws IOException if the file cannot be read, is not a valid instance file or is corrupt
+     */
+    public static DistanceMatrix load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = new Header(file, channel);
+            if (header.layout != LAYOUT_COORDINATES) {
+                return open(file, channel, header, true);
+            }
+            if (header.dataBytes() > Integer.MAX_VALUE) {
+                throw new IOException(file + " has too many cities: " + header.size);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, header.dataBytes())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.verify(file, data);
+            double[] x = new double[header.size];
+            double[] y = new double[header.size];
+            data.asDoubleBuffer().get(x).get(y);
+            return new CoordinateDistanceMatrix(x, y, CoordinateDistanceMatrix.Metric.values()[header.metric], 0, true);
+        }
+    }
+
+    private static MappedDistanceMatrix open(Path file, FileChannel channel, Header header, boolean verify) throws IOException {
+        long bytes = header.dataBytes();
+        ByteBuffer[] chunks = new ByteBuffer[(int) ((bytes + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = (long) i << CHUNK_SHIFT;
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + start,
+                    Math.min(CHUNK_MASK + 1, bytes - start));
+            chunks[i] = chunk.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (verify) {
+            header.verify(file, chunks);
+        }
+        return new MappedDistanceMatrix(header, chunks);
+    }
+
+    /**
+     * Writes an instance file. Coordinate matrices are stored as their coordinates; other
+     * matrices as costs, keeping only the upper triangle if the matrix is symmetric.
+     *
+     * @throws IOException if the file cannot be written
+     * @see #write(DistanceMatrix, Path, boolean)
+     */
+    public static void write(DistanceMatrix graph, Path file) throws IOException {
+        if (graph instanceof CoordinateDistanceMatrix) {
+            writeCoordinates((CoordinateDistanceMatrix) graph, file);
+        } else {
+            write(graph, file, graph.isSymmetric());
+        }
+    }
+
+    /**
+     * Writes a matrix file from a jagged matrix.
+     *
+     * @throws IllegalArgumentException if the graph is null, empty, not square or has null rows
+     * @throws IOException              if the file cannot be written
+     * @see #write(DistanceMatrix, Path)
+     */
+    public static void write(int[][] graph, Path file) throws IOException {
+        write(DistanceMatrix.of(graph), file);
+    }
+
+    /**
+     * Converts a TSPLIB instance read by {@link TsplibReader} into an instance file.
+     *
+     * @throws IOException if the TSPLIB file cannot be read or the instance file written
+     */
+    public static void convert(Path tsplibFile, Path file) throws IOException {
+        write(TsplibReader.read(tsplibFile), file);
+    }
+
+    /**
+     * Converts TSPLIB instances into instance files.
+     *
+     * @param args Pairs of a TSPLIB file and the instance file to write
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 != 0) {
+            System.err.println("Usage: MappedDistanceMatrix <instance.tsp> <instance.bin> [...]");
+            return;
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            long startTime = System.nanoTime();
+            convert(Path.of(args[i]), Path.of(args[i + 1]));
+            System.out.println(args[i] + " -> " + args[i + 1] + ", Time = "
+                    + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * Writes a matrix file of costs, with 16-bit codes when the costs allow it and 32-bit costs
+     * otherwise. The file is written next to its target and moved into place when complete, so
+     * other processes never map a partly written file.
+     *
+     * @param triangular Whether to store only the upper triangle, which requires a symmetric graph
+     * @throws IllegalArgumentException if a triangle is requested for an asymmetric graph
+     * @throws IOException              if the file cannot be written
+     */
+    public static void write(DistanceMatrix graph, Path file, boolean triangular) throws IOException {
+        boolean symmetric = graph.isSymmetric();
+        if (triangular && !symmetric) {
+            throw new IllegalArgumentException("Only a symmetric graph can be stored as a triangle");
+        }
+        int n = graph.size();
+        int minimum = Integer.MAX_VALUE;
+        int maximum = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            for (int j = triangular ? i : 0; j < n; j++) {
+                minimum = Math.min(minimum, graph.get(i, j));
+                maximum = Math.max(maximum, graph.get(i, j));
+            }
+        }
+        long step = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = triangular ? i : 0; j < n; j++) {
+                step = gcd(step, (long) graph.get(i, j) - minimum);
+            }
+        }
+        step = Math.max(step, 1);
+        // A step beyond the int range leaves only codes 0 and 1, which 32-bit values hold as well.
+        boolean narrow = step <= Integer.MAX_VALUE && ((long) maximum - minimum) / step <= Character.MAX_VALUE;
+        int offset = narrow ? minimum : 0;
+        int width = narrow ? Character.BYTES : Integer.BYTES;
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Output output = new Output(temporary)) {
+            output.header(width, triangular ? LAYOUT_TRIANGLE : LAYOUT_FULL, symmetric, n, offset, narrow ? (int) step : 1, 0);
+            for (int i = 0; i < n; i++) {
+                for (int j = triangular ? i : 0; j < n; j++) {
+                    if (narrow) {
+                        output.putChar((char) (((long) graph.get(i, j) - offset) / step));
+                    } else {
+                        output.putInt(graph.get(i, j));
+                    }
+                }
+            }
+            output.finish();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeCoordinates(CoordinateDistanceMatrix graph, Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Output output = new Output(temporary)) {
+            output.header(Double.BYTES, LAYOUT_COORDINATES, true, graph.size(), 0, 1, graph.getMetric().ordinal());
+            for (double coordinate : graph.x()) {
+                output.putDouble(coordinate);
+            }
+            for (double coordinate : graph.y()) {
+                output.putDouble(coordinate);
+            }
+            output.finish();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Buffered writer of a file that keeps the checksum of everything written.
+     */
+    private static final class Output implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+
+        Output(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        /**
+         * Writes the header with a zero checksum, which {@link #finish()} fills in.
+         */
+        void header(int width, int layout, boolean symmetric, int size, int offset, int step, int metric) {
+            buffer.putInt(MAGIC).put(VERSION).put((byte) width).put((byte) layout).put((byte) (symmetric ? 1 : 0));
+            buffer.putInt(size).putInt(offset).putInt(step).putInt(0).putInt(metric);
+            buffer.position(HEADER_BYTES);
+        }
+
+        void putChar(char value) throws IOException {
+            if (buffer.remaining() < Character.BYTES) {
+                drain();
+            }
+            buffer.putChar(value);
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < Integer.BYTES) {
+                drain();
+            }
+            buffer.putInt(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            if (buffer.remaining() < Double.BYTES) {
+                drain();
+            }
+            buffer.putDouble(value);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes what is buffered, stores the checksum in the header and flushes the file to disk.
+         */
+        void finish() throws IOException {
+            drain();
+            ByteBuffer checksum = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            checksum.putInt(0, (int) crc.getValue());
+            while (checksum.hasRemaining()) {
+                channel.write(checksum, CHECKSUM_POSITION + checksum.position());
+            }
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static long entries(long size, boolean triangular) {
+        return triangular ? size * (size + 1) / 2 : size * size;
+    }
+
+    @Override
+    public int get(int from, int to) {
+        long position = entry(from, to) * width;
+        ByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+        int index = (int) (position & CHUNK_MASK);
+        return width == Integer.BYTES ? chunk.getInt(index) : offset + step * chunk.getChar(index);
+    }
+
+    /**
+     * @return Position of the cost from {@code from} to {@code to} among the stored costs
+     */
+    private long entry(int from, int to) {
+        if (!triangular) {
+            return (long) from * size() + to;
+        }
+        long row = Math.min(from, to);
+        // Rows before this one hold n, n - 1, ..., n - row + 1 costs.
+        return row * size() - row * (row - 1) / 2 + Math.max(from, to) - row;
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+}
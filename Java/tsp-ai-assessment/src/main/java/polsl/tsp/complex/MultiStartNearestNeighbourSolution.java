@@ -0,0 +1,173 @@
+package polsl.tsp.complex;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Nearest-neighbour construction from many start cities, keeping the cheapest tour. The greedy
+ * tour depends on where it starts; on random uniform instances the best start is a few percent
+ * cheaper than city 0, and more on clustered ones, so this is a cheap way to a better initial
+ * tour for local search.
+ * <p>
+ * Tours are built as in {@link FastNearestNeighbourSolution}, all sharing one set of candidate
+ * lists and, for a {@link CoordinateDistanceMatrix}, one k-d tree. The starts are split into
+ * ranges processed on a {@link ForkJoinPool}; each worker thread builds its tours in its own
+ * thread-local scratch arrays, so a tour allocates nothing, and copies a tour out only when it
+ * beats the best one of its range. Partial results are merged by cost and then by start city, so
+ * the result does not depend on the parallelism. The returned tour is rotated to start and end in
+ * city 0.
+ */
+public class MultiStartNearestNeighbourSolution implements TspAlgorithm {
+
+    private static final int NEIGHBOURS = 10;
+
+    /**
+     * Ranges are cut this much finer than the number of workers to even out uneven progress.
+     */
+    private static final int RANGES_PER_WORKER = 8;
+
+    private final int parallelism;
+    private final int starts;
+
+    /**
+     * Starts from every city, on all available processors.
+     */
+    public MultiStartNearestNeighbourSolution() {
+        this(Runtime.getRuntime().availableProcessors(), 0);
+    }
+
+    /**
+     * @param parallelism Number of worker threads
+     * @param starts      Number of start cities, spread evenly over the city indices and always
+     *                    including city 0; 0 to start from every city
+     */
+    public MultiStartNearestNeighbourSolution(int parallelism, int starts) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        if (starts < 0) {
+            throw new IllegalArgumentException("Number of start cities cannot be negative, got " + starts);
+        }
+        this.parallelism = parallelism;
+        this.starts = starts;
+    }
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
+        if (n == 1) {
+            return new TspResult(new int[]{0}, 0);
+        }
+
+        KdTree tree = null;
+        CandidateLists candidates;
+        if (graph instanceof CoordinateDistanceMatrix) {
+            tree = ((CoordinateDistanceMatrix) graph).spatialIndex();
+            candidates = CandidateLists.of((CoordinateDistanceMatrix) graph, tree, NEIGHBOURS, 0);
+        } else {
+            candidates = CandidateLists.nearest(graph, NEIGHBOURS);
+        }
+        KdTree index = tree;
+        ThreadLocal<FastNearestNeighbourSolution.Scratch> scratch =
+                ThreadLocal.withInitial(() -> new FastNearestNeighbourSolution.Scratch(n, index));
+
+        int count = starts == 0 ? n : Math.min(starts, n);
+        int grain = Math.max(1, count / (parallelism * RANGES_PER_WORKER));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        StartBest best;
+        try {
+            best = pool.invoke(new StartTask(graph, candidates, scratch, count, 0, count, grain));
+        } finally {
+            pool.shutdown();
+        }
+
+        // Rotate the closed tour so that it starts and ends in city 0.
+        int offset = 0;
+        while (best.path[offset] != 0) {
+            offset++;
+        }
+        int[] path = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            path[i] = best.path[(offset + i) % n];
+        }
+        return new TspResult(path, best.cost);
+    }
+
+    /**
+     * Cheapest tour of a range of starts.
+     */
+    private static class StartBest {
+        final int start;
+        final int cost;
+        final int[] path;
+
+        StartBest(int start, int cost, int[] path) {
+            this.start = start;
+            this.cost = cost;
+            this.path = path;
+        }
+
+        StartBest min(StartBest other) {
+            if (other.cost != cost) {
+                return other.cost < cost ? other : this;
+            }
+            return other.start < start ? other : this;
+        }
+    }
+
+    private static class StartTask extends RecursiveTask<StartBest> {
+        private final DistanceMatrix graph;
+        private final CandidateLists candidates;
+        private final ThreadLocal<FastNearestNeighbourSolution.Scratch> scratch;
+        private final int count;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        /**
+         * @param count Total number of starts; start {@code i} is city {@code i * n / count}
+         */
+        StartTask(DistanceMatrix graph, CandidateLists candidates, ThreadLocal<FastNearestNeighbourSolution.Scratch> scratch,
+                  int count, int from, int to, int grain) {
+            this.graph = graph;
+            this.candidates = candidates;
+            this.scratch = scratch;
+            this.count = count;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected StartBest compute() {
+            if (to - from > grain) {
+                int middle = (from + to) >>> 1;
+                StartTask left = new StartTask(graph, candidates, scratch, count, from, middle, grain);
+                StartTask right = new StartTask(graph, candidates, scratch, count, middle, to, grain);
+                left.fork();
+                StartBest rightBest = right.compute();
+                return left.join().min(rightBest);
+            }
+
+            int n = graph.size();
+            FastNearestNeighbourSolution.Scratch arrays = scratch.get();
+            int[] bestPath = new int[n + 1];
+            int bestStart = -1;
+            int bestCost = Integer.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                int start = (int) ((long) i * n / count);
+                int[] path = FastNearestNeighbourSolution.tour(graph, candidates, arrays, start);
+                int cost = 0;
+                for (int j = 0; j < n; j++) {
+                    cost += graph.get(path[j], path[j + 1]);
+                }
+                if (bestStart < 0 || cost < bestCost) {
+                    bestStart = start;
+                    bestCost = cost;
+                    System.arraycopy(path, 0, bestPath, 0, n + 1);
+                }
+            }
+            return new StartBest(bestStart, bestCost, bestPath);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package polsl.tsp.complex;
+
+/**
+ * Local search with moves that never reverse the direction of travel, so it works on asymmetric
+ * matrices as well as symmetric ones. Every move cuts the tour into three segments {@code A B C}
+ * and reconnects them as {@code A C B}, the only 3-opt move that keeps every segment's
+ * orientation. Since no edge inside a segment changes direction, a move is scored in O(1) from
+ * the three removed and the three added edges, whatever the matrix.
+ * <p>
+ * Two neighbourhoods of this move are searched from each city:
+ * <ul>
+ *     <li>Or-opt: the segment of up to {@link #MAX_SEGMENT} cities starting at the city is moved
+ *     after a city from which it is cheap to reach;</li>
+ *     <li>segment insertion: the edge {@code (a, b)} leaving the city {@code a} is replaced by an
+ *     edge to a city {@code c} cheap to go to from {@code a}, the edge {@code (x, c)} entering
+ *     {@code c} by an edge to a city {@code z} cheap to go to from {@code x}, and the segment
+ *     from {@code c} up to {@code z} is moved between {@code a} and {@code b}.</li>
+ * </ul>
+ * Both use {@link CandidateLists candidate lists}, by the cost of reaching a city for Or-opt and
+ * of leaving it for segment insertion, and are cut off as soon as the partial gain of a move is
+ * no longer positive.
+ * Don't look bits and the in-place tour array work as in {@link TwoOptImprover}; a move rotates
+ * the two shorter segments in the array.
+ */
+public class OrOptImprover implements TourImprover {
+
+    private static final int NEIGHBOURS = 10;
+    private static final int MAX_SEGMENT = 3;
+
+    private final int neighbours;
+
+    public OrOptImprover() {
+        this(NEIGHBOURS);
+    }
+
+    /**
+     * @param neighbours Length of the candidate lists of each city
+     */
+    public OrOptImprover(int neighbours) {
+        if (neighbours < 1) {
+            throw new IllegalArgumentException("Number of neighbours must be positive");
+        }
+        this.neighbours = neighbours;
+    }
+
+    @Override
+    public TspResult improve(DistanceMatrix graph, TspResult tour) {
+        int[] order = Tours.open(graph, tour);
+        if (order.length >= 3) {
+            CandidateLists outgoing = CandidateLists.nearest(graph, neighbours);
+            CandidateLists incoming = graph.isSymmetric() ? outgoing : CandidateLists.nearestIncoming(graph, neighbours);
+            new Search(graph, outgoing, incoming, order).run();
+        }
+        return Tours.close(graph, order);
+    }
+
+    /**
+     * State of one run over a tour, which it rearranges in place.
+     */
+    private static final class Search {
+        private final DistanceMatrix graph;
+        private final CandidateLists outgoing;
+        private final CandidateLists incoming;
+        private final int n;
+        private final int[] tour;
+        private final int[] position;
+        private final int[] queue;
+        private final boolean[] queued;
+        private int queueHead;
+        private int queueSize;
+        private final int[] buffer;
+
+        Search(DistanceMatrix graph, CandidateLists outgoing, CandidateLists incoming, int[] tour) {
+            this.graph = graph;
+            this.outgoing = outgoing;
+            this.incoming = incoming;
+            this.n = tour.length;
+            this.tour = tour;
+            this.position = new int[n];
+            this.queue = new int[n];
+            this.queued = new boolean[n];
+            this.buffer = new int[n];
+            for (int i = 0; i < n; i++) {
+                position[tour[i]] = i;
+                push(tour[i]);
+            }
+        }
+
+        void run() {
+            while (queueSize > 0) {
+                int city = queue[queueHead];
+                queueHead = queueHead + 1 == n ? 0 : queueHead + 1;
+                queueSize--;
+                queued[city] = false;
+                if (orOpt(city) || insertSegment(city)) {
+                    push(city);
+                }
+            }
+        }
+
+        private void push(int city) {
+            if (!queued[city]) {
+                queued[city] = true;
+                int tail = queueHead + queueSize;
+                queue[tail >= n ? tail - n : tail] = city;
+                queueSize++;
+            }
+        }
+
+        private int next(int city) {
+            int i = position[city] + 1;
+            return tour[i == n ? 0 : i];
+        }
+
+        private int previous(int city) {
+            int i = position[city];
+            return tour[i == 0 ? n - 1 : i - 1];
+        }
+
+        /**
+         * @return Number of steps forward along the tour from {@code from} to {@code to}
+         */
+        private int offset(int from, int to) {
+            int offset = position[to] - position[from];
+            return offset < 0 ? offset + n : offset;
+        }
+
+        /**
+         * Tries to move the segment {@code first .. last} from between {@code p} and {@code q}
+         * to between a city {@code c} cheap to reach {@code first} from and its successor
+         * {@code d}.
+         *
+         * @return Whether a move was applied
+         */
+        private boolean orOpt(int first) {
+            int p = previous(first);
+            int last = first;
+            for (int length = 1; length <= MAX_SEGMENT && length + 3 <= n; length++) {
+                if (length > 1) {
+                    last = next(last);
+                }
+                int q = next(last);
+                int removed = graph.get(p, first) + graph.get(last, q) - graph.get(p, q);
+                int count = incoming.count(first);
+                for (int rank = 0; rank < count; rank++) {
+                    int c = incoming.get(first, rank);
+                    int partial = removed - graph.get(c, first);
+                    if (partial <= 0) {
+                        break;
+                    }
+                    // c must lie outside the segment and not already precede it.
+                    if (c == p || offset(first, c) < length) {
+                        continue;
+                    }
+                    int d = next(c);
+                    if (partial + graph.get(c, d) - graph.get(last, d) > 0) {
+                        // p first .. last q .. c d becomes p q .. c first .. last d.
+                        exchange(first, q, d);
+                        push(p);
+                        push(q);
+                        push(c);
+                        push(d);
+                        push(last);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Tries to replace {@code (a, b)} by {@code (a, c)}, {@code (x, c)} by {@code (x, z)} and
+         * {@code (y, z)} by {@code (y, b)}, where {@code x} precedes {@code c} and {@code y}
+         * precedes {@code z}: the segment {@code c .. y} moves between {@code a} and {@code b}.
+         * Each added edge starts where the previous removed one ended, so the same move is also
+         * found from {@code x} and from {@code y}; from at least one of them every partial gain
+         * is positive, which is what the cut-offs require.
+         *
+         * @return Whether a move was applied
+         */
+        private boolean insertSegment(int a) {
+            int b = next(a);
+            int removed = graph.get(a, b);
+            int bestGain = 0;
+            int bestC = -1;
+            int bestZ = -1;
+            int count = outgoing.count(a);
+            for (int i = 0; i < count; i++) {
+                int c = outgoing.get(a, i);
+                int first = removed - graph.get(a, c);
+                if (first <= 0) {
+                    break;
+                }
+                if (c == b) {
+                    continue;
+                }
+                int x = previous(c);
+                int cOffset = offset(b, c);
+                int opened = first + graph.get(x, c);
+                int xCount = outgoing.count(x);
+                for (int j = 0; j < xCount; j++) {
+                    int z = outgoing.get(x, j);
+                    int second = opened - graph.get(x, z);
+                    if (second <= 0) {
+                        break;
+                    }
+                    // b .. x c .. y z .. a: z must come after c.
+                    if (offset(b, z) <= cOffset) {
+                        continue;
+                    }
+                    int y = previous(z);
+                    int gain = second + graph.get(y, z) - graph.get(y, b);
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        bestC = c;
+                        bestZ = z;
+                    }
+                }
+            }
+            if (bestC < 0) {
+                return false;
+            }
+
+            int x = previous(bestC);
+            int y = previous(bestZ);
+            // a b .. x c .. y z becomes a c .. y b .. x z.
+            exchange(b, bestC, bestZ);
+            push(a);
+            push(b);
+            push(x);
+            push(bestC);
+            push(y);
+            push(bestZ);
+            return true;
+        }
+
+        /**
+         * Swaps the two consecutive segments that start at cities {@code b} and {@code c}; the
+         * segment after them starts at {@code z}. The tour {@code A B C}, with {@code A} starting
+         * at {@code z}, becomes {@code A C B}, which is the same cycle as {@code B A C} and
+         * {@code C B A}, so the two shorter segments are the ones rotated.
+         */
+        private void exchange(int b, int c, int z) {
+            int lengthB = offset(b, c);
+            int lengthC = offset(c, z);
+            int lengthA = n - lengthB - lengthC;
+            if (lengthA >= lengthB && lengthA >= lengthC) {
+                rotate(position[b], lengthB + lengthC, lengthB);
+            } else if (lengthB >= lengthC) {
+                rotate(position[c], lengthC + lengthA, lengthC);
+            } else {
+                rotate(position[z], lengthA + lengthB, lengthA);
+            }
+        }
+
+        /**
+         * Rotates the cyclic range of {@code length} positions at {@code from} left by {@code shift}.
+         */
+        private void rotate(int from, int length, int shift) {
+            int source = from + shift;
+            for (int i = 0; i < length; i++) {
+                if (source >= from + length) {
+                    source -= length;
+                }
+                buffer[i] = tour[source >= n ? source - n : source];
+                source++;
+            }
+            int index = from;
+            for (int i = 0; i < length; i++) {
+                if (index == n) {
+                    index = 0;
+                }
+                tour[index] = buffer[i];
+                position[buffer[i]] = index;
+                index++;
+            }
+        }
+    }
+}
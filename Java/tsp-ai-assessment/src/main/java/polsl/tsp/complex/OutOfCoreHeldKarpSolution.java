@@ -0,0 +1,309 @@
+package polsl.tsp.complex;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Held-Karp variant for instances whose full table does not fit on the heap.
+ * Only the previous and the current cardinality layer are kept in memory. Each layer is stored
+ * compactly: a subset of size k gets its rank in the combinatorial number system and only its
+ * k cells are kept. Parent pointers of every layer are written to memory-mapped files in the
+ * working directory, and the cost table of the last finished layer is persisted as a checkpoint.
+ * Calling {@link #solveTSP(int[][])} again with the same graph and working directory after an
+ * interruption continues from the last finished layer instead of starting over.
+ * <p>
+ * Java cannot unmap a file explicitly: a mapping lasts until the garbage collector frees its
+ * buffer. Cost files are therefore read and written through plain channel I/O, and only the
+ * parent files being filled are mapped. Until their buffers are collected, deleted parent files
+ * still hold their disk space, and on Windows they cannot be deleted at all; cleanup then leaves
+ * them in place, to be overwritten by a later run.
+ */
+public class OutOfCoreHeldKarpSolution implements TspAlgorithm {
+
+    /**
+     * Largest instance whose biggest layer still fits in a single mapped buffer.
+     */
+    public static final int MAX_CITIES = 28;
+
+    private static final int PROGRESS_MAGIC = 0x484B4350; // "HKCP"
+    private static final String PROGRESS_FILE = "progress.bin";
+    private static final int PARENT_BUFFER_SIZE = 1 << 16;
+    private static final int COST_BUFFER_SIZE = 1 << 14;
+
+    private final Path workDirectory;
+
+    /**
+     * @param workDirectory Directory for the layer files and the checkpoint, reused between runs
+     */
+    public OutOfCoreHeldKarpSolution(Path workDirectory) {
+        if (workDirectory == null) {
+            throw new IllegalArgumentException("Work directory cannot be null");
+        }
+        this.workDirectory = workDirectory;
+    }
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
+        if (n == 1) {
+            return new TspResult(new int[]{0}, 0);
+        }
+        if (n > MAX_CITIES) {
+            throw new IllegalArgumentException("Out-of-core Held-Karp supports at most " + MAX_CITIES + " cities, got " + n);
+        }
+
+        try {
+            Files.createDirectories(workDirectory);
+            return solve(graph);
+        } catch (ClosedByInterruptException e) {
+            throw new IllegalStateException("Interrupted, call solveTSP again to resume from the last finished layer", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Held-Karp layer files could not be accessed in " + workDirectory, e);
+        }
+    }
+
+    private TspResult solve(DistanceMatrix graph) throws IOException {
+        int n = graph.size();
+        int m = n - 1;
+        int[][] binomial = HeldKarpSolution.binomialTable(m);
+        long fingerprint = graph.fingerprint();
+
+        int completedLayer = readCompletedLayer(n, fingerprint);
+        int[] previous;
+        if (completedLayer > 0) {
+            previous = readCostLayer(completedLayer, binomial[m][completedLayer] * completedLayer);
+        } else {
+            deleteLayerFiles(m);
+            // Layer 1: rank of {j} is j and every subset has a single cell.
+            previous = new int[m];
+            MappedByteBuffer parents = mapLayerFile(parentFile(1), m);
+            for (int j = 0; j < m; j++) {
+                previous[j] = graph.get(0, j + 1);
+                parents.put(j, (byte) -1);
+            }
+            finishLayer(1, previous, parents, n, fingerprint);
+            completedLayer = 1;
+        }
+
+        int[] bits = new int[m];
+        int[] prefix = new int[m + 1];
+        byte[] parentBuffer = new byte[PARENT_BUFFER_SIZE];
+        for (int size = completedLayer + 1; size <= m; size++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Interrupted after layer " + (size - 1) + ", call solveTSP again to resume");
+            }
+            int layerSize = binomial[m][size];
+            int[] current = new int[layerSize * size];
+            MappedByteBuffer parents = mapLayerFile(parentFile(size), current.length);
+            int flushed = 0;
+
+            int mask = (1 << size) - 1;
+            for (int rank = 0; rank < layerSize; rank++) {
+                int count = 0;
+                for (int rest = mask; rest != 0; rest &= rest - 1) {
+                    bits[count++] = Integer.numberOfTrailingZeros(rest);
+                }
+                // prefix[t] is the rank contribution of bits below position t, kept at their
+                // positions; bits above a removed city shift down by one position.
+                prefix[0] = 0;
+                for (int t = 0; t < size; t++) {
+                    prefix[t + 1] = prefix[t] + binomial[bits[t]][t + 1];
+                }
+                int shiftedSuffix = 0;
+                for (int t = size - 1; t >= 0; t--) {
+                    int j = bits[t];
+                    int previousBase = (prefix[t] + shiftedSuffix) * (size - 1);
+                    int best = Integer.MAX_VALUE;
+                    int bestK = -1;
+                    for (int i = 0; i < size - 1; i++) {
+                        int k = bits[i < t ? i : i + 1];
+                        int candidate = previous[previousBase + i] + graph.get(k + 1, j + 1);
+                        if (candidate < best) {
+                            best = candidate;
+                            bestK = k;
+                        }
+                    }
+                    current[rank * size + t] = best;
+                    parentBuffer[rank * size + t - flushed] = (byte) bestK;
+                    shiftedSuffix += binomial[j][t];
+                }
+                if (rank + 1 < layerSize) {
+                    mask = HeldKarpSolution.nextSubset(mask);
+                }
+                // Parent pointers are staged in a small heap buffer and copied to the mapped
+                // file in bulk, whole subsets at a time.
+                int pending = (rank + 1) * size - flushed;
+                if (pending > PARENT_BUFFER_SIZE - size || rank + 1 == layerSize) {
+                    parents.put(flushed, parentBuffer, 0, pending);
+                    flushed += pending;
+                }
+            }
+
+            finishLayer(size, current, parents, n, fingerprint);
+            previous = current;
+        }
+
+        int minCost = Integer.MAX_VALUE;
+        int last = -1;
+        for (int t = 0; t < m; t++) {
+            int candidate = previous[t] + graph.get(t + 1, 0);
+            if (candidate < minCost) {
+                minCost = candidate;
+                last = t;
+            }
+        }
+
+        int[] path = reconstructPath(binomial, m, last);
+        deleteLayerFiles(m);
+        Files.deleteIfExists(workDirectory.resolve(PROGRESS_FILE));
+        return new TspResult(path, minCost);
+    }
+
+    /**
+     * Rebuilds the tour by reading one parent pointer from every layer file, last layer first.
+     */
+    private int[] reconstructPath(int[][] binomial, int m, int last) throws IOException {
+        int[] path = new int[m + 2];
+        int mask = (1 << m) - 1;
+        int city = last;
+        ByteBuffer parent = ByteBuffer.allocate(1);
+        for (int size = m; size >= 1; size--) {
+            path[size] = city + 1;
+            try (FileChannel channel = FileChannel.open(parentFile(size), StandardOpenOption.READ)) {
+                int position = Integer.bitCount(mask & ((1 << city) - 1));
+                parent.clear();
+                if (channel.read(parent, (long) rankOf(binomial, mask) * size + position) != 1) {
+                    throw new IOException("Parent file of layer " + size + " is truncated");
+                }
+                mask ^= 1 << city;
+                city = parent.get(0);
+            }
+        }
+        path[0] = 0;
+        path[m + 1] = 0;
+        return path;
+    }
+
+    /**
+     * Rank of a subset among all subsets of the same size, in increasing numeric order.
+     */
+    private static int rankOf(int[][] binomial, int mask) {
+        int rank = 0;
+        int i = 1;
+        for (int rest = mask; rest != 0; rest &= rest - 1, i++) {
+            rank += binomial[Integer.numberOfTrailingZeros(rest)][i];
+        }
+        return rank;
+    }
+
+    /**
+     * Flushes the parent pointers and costs of a finished layer, then atomically records the
+     * layer as the new checkpoint and drops the cost file of the layer before it.
+     */
+    private void finishLayer(int size, int[] costs, MappedByteBuffer parents, int n, long fingerprint) throws IOException {
+        parents.force();
+        try (FileChannel channel = FileChannel.open(costFile(size), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(COST_BUFFER_SIZE * Integer.BYTES);
+            for (int from = 0; from < costs.length; from += COST_BUFFER_SIZE) {
+                int count = Math.min(COST_BUFFER_SIZE, costs.length - from);
+                buffer.clear();
+                buffer.asIntBuffer().put(costs, from, count);
+                buffer.limit(count * Integer.BYTES);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(false);
+        }
+
+        Path temporary = workDirectory.resolve(PROGRESS_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+            out.writeInt(PROGRESS_MAGIC);
+            out.writeInt(n);
+            out.writeLong(fingerprint);
+            out.writeInt(size);
+        }
+        Files.move(temporary, workDirectory.resolve(PROGRESS_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(costFile(size - 1));
+    }
+
+    /**
+     * Returns the last finished layer of a previous run on the same graph, or 0 if there is none.
+     */
+    private int readCompletedLayer(int n, long fingerprint) throws IOException {
+        Path progress = workDirectory.resolve(PROGRESS_FILE);
+        if (!Files.exists(progress)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(progress))) {
+            if (in.readInt() != PROGRESS_MAGIC || in.readInt() != n || in.readLong() != fingerprint) {
+                return 0;
+            }
+            int layer = in.readInt();
+            return Files.exists(costFile(layer)) ? layer : 0;
+        }
+    }
+
+    private int[] readCostLayer(int size, int cells) throws IOException {
+        try (FileChannel channel = FileChannel.open(costFile(size), StandardOpenOption.READ)) {
+            int[] costs = new int[cells];
+            ByteBuffer buffer = ByteBuffer.allocate(COST_BUFFER_SIZE * Integer.BYTES);
+            for (int from = 0; from < cells; from += COST_BUFFER_SIZE) {
+                int count = Math.min(COST_BUFFER_SIZE, cells - from);
+                buffer.clear();
+                buffer.limit(count * Integer.BYTES);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Cost file of layer " + size + " is truncated");
+                    }
+                }
+                buffer.flip();
+                buffer.asIntBuffer().get(costs, from, count);
+            }
+            return costs;
+        }
+    }
+
+    private MappedByteBuffer mapLayerFile(Path file, long bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        }
+    }
+
+    /**
+     * Deletes the files of every layer. A parent file that is still mapped cannot be deleted on
+     * some platforms, and is left in place.
+     */
+    private void deleteLayerFiles(int m) throws IOException {
+        for (int size = 1; size <= m; size++) {
+            try {
+                Files.deleteIfExists(parentFile(size));
+            } catch (FileSystemException e) {
+                // Still mapped; a later run truncates and overwrites it.
+            }
+            Files.deleteIfExists(costFile(size));
+        }
+    }
+
+    private Path parentFile(int size) {
+        return workDirectory.resolve("parent-" + size + ".bin");
+    }
+
+    private Path costFile(int size) {
+        return workDirectory.resolve("cost-" + size + ".bin");
+    }
+}
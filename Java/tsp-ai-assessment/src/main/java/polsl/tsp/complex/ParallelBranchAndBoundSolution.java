@@ -0,0 +1,402 @@
+package polsl.tsp.complex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import polsl.tsp.complex.BranchAndBoundSolution.Node;
+
+/**
+ * Parallel version of the depth-first {@link BranchAndBoundSolution}. Every worker runs a
+ * depth-first search on its own subtree and, whenever the pool runs short of queued work, forks
+ * the shallowest open node of its stack as a new task for idle workers to steal.
+ * <p>
+ * The incumbent is shared through an {@link AtomicReference} updated with compare-and-set, so
+ * every worker prunes against the best tour found by any thread as soon as it is published.
+ * Ties are broken towards the lexicographically smallest tour exactly like in the sequential
+ * solver, so both return the same {@link TspResult}.
+ * <p>
+ * Searches can be checkpointed to the same file format as the sequential solver. A background
+ * thread starts a snapshot by bumping an epoch counter; each running task notices the new epoch
+ * before its next node and publishes a copy of the references on its stack, and tasks that have
+ * not started yet are represented by their start nodes. The workers never wait for the snapshot
+ * or the disk. A task publishes before handing out a node, so a node forked after the snapshot
+ * started is covered by its parent's stack; open nodes may be saved twice, which only repeats
+ * some work after resuming. Write failures and interruption of the calling thread stop the search
+ * as in the sequential solver.
+ */
+public class ParallelBranchAndBoundSolution implements TspAlgorithm {
+
+    /**
+     * A worker only hands out work when fewer tasks than this are queued beyond its own needs.
+     */
+    private static final int SPLIT_THRESHOLD = 2;
+
+    /**
+     * How long the checkpoint thread sleeps between checks for tasks yet to publish their stacks.
+     */
+    private static final long PUBLISH_WAIT_NANOS = 100_000;
+
+    private final int parallelism;
+    private final Path checkpointFile;
+    private final long checkpointIntervalMillis;
+    private final Map<Integer, LongAdder> workerNodeCounts = new ConcurrentHashMap<>();
+    private final LongAdder nodeCount = new LongAdder();
+
+    public ParallelBranchAndBoundSolution() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism Number of worker threads
+     */
+    public ParallelBranchAndBoundSolution(int parallelism) {
+        this(parallelism, null, 0);
+    }
+
+    /**
+     * @param parallelism              Number of worker threads
+     * @param checkpointFile           File the search is snapshotted to and resumed from, null to disable
+     * @param checkpointIntervalMillis Minimum time between two snapshots
+     */
+    public ParallelBranchAndBoundSolution(int parallelism, Path checkpointFile, long checkpointIntervalMillis) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        if (checkpointFile != null && checkpointIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.parallelism = parallelism;
+        this.checkpointFile = checkpointFile;
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+    }
+
+    /**
+     * @return Number of nodes expanded by all workers during the last call to
+     * {@link #solveTSP(int[][])}, plus those expanded before the checkpoint it resumed from
+     */
+    public long getNodeCount() {
+        return nodeCount.sum();
+    }
+
+    /**
+     * @return Nodes expanded by each worker during the last call to {@link #solveTSP(int[][])},
+     * indexed by the worker's pool index
+     */
+    public long[] getWorkerNodeCounts() {
+        int size = workerNodeCounts.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        long[] counts = new long[size];
+        workerNodeCounts.forEach((worker, count) -> counts[worker] = count.sum());
+        return counts;
+    }
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
+        workerNodeCounts.clear();
+        nodeCount.reset();
+        if (n == 1) {
+            return new TspResult(new int[]{0}, 0);
+        }
+
+        int[] initialPath = BranchAndBoundSolution.initialTour(graph);
+        int initialCost = BranchAndBoundSolution.pathCost(graph, initialPath);
+        TourBounds bounds = BranchAndBoundSolution.createBounds(graph, initialCost);
+        AtomicReference<TspResult> incumbent = new AtomicReference<>(new TspResult(initialPath, initialCost));
+
+        long fingerprint = checkpointFile == null ? 0 : graph.fingerprint();
+        SearchCheckpoint resumed = checkpointFile == null ? null : SearchCheckpoint.resume(checkpointFile, n, fingerprint);
+        Node[] start;
+        if (resumed != null) {
+            offer(incumbent, resumed.incumbent.getPath(), resumed.incumbent.getCost());
+            nodeCount.add(resumed.nodeCount);
+            start = Arrays.copyOf(resumed.stack, resumed.stack.length + resumed.queue.length);
+            System.arraycopy(resumed.queue, 0, start, resumed.stack.length, resumed.queue.length);
+        } else {
+            boolean[] visited = new boolean[n];
+            visited[0] = true;
+            int[] rootPath = {0};
+            start = new Node[]{new Node(rootPath, 0, bounds.lowerBound(rootPath, 1, 0, visited))};
+        }
+
+        Frontier frontier = new Frontier();
+        SubtreeTask root = new SubtreeTask(graph, bounds, incumbent, frontier, start);
+        frontier.live.add(root);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        if (checkpointFile == null) {
+            try {
+                pool.invoke(root);
+            } finally {
+                pool.shutdown();
+            }
+            return incumbent.get();
+        }
+
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parallel-branch-and-bound-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            writer.scheduleWithFixedDelay(() -> checkpoint(frontier, incumbent, n, fingerprint),
+                    checkpointIntervalMillis, checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+            pool.execute(root);
+            try {
+                root.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted, call solveTSP again to resume from the last checkpoint", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Search failed", e.getCause());
+            }
+
+            SearchCheckpoint.shutdown(writer);
+            if (frontier.failure != null) {
+                throw frontier.failure;
+            }
+            try {
+                Files.deleteIfExists(checkpointFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Checkpoint could not be deleted: " + checkpointFile, e);
+            }
+        } finally {
+            // Lets the workers of an interrupted or failed search return.
+            frontier.stopped = true;
+            SearchCheckpoint.shutdown(writer);
+            pool.shutdown();
+        }
+        return incumbent.get();
+    }
+
+    /**
+     * Takes a snapshot and writes it, running on the checkpoint thread. A failure stops the search.
+     */
+    private void checkpoint(Frontier frontier, AtomicReference<TspResult> incumbent, int n, long fingerprint) {
+        try {
+            Node[] open = frontier.capture();
+            if (open == null) {
+                return;
+            }
+            // Read after the capture, so it includes every tour found by a task that finished
+            // before it could publish.
+            TspResult best = incumbent.get();
+            new SearchCheckpoint(n, fingerprint, nodeCount.sum(), best, open, new Node[0]).save(checkpointFile);
+        } catch (RuntimeException e) {
+            frontier.failure = e;
+            frontier.stopped = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Publishes a tour if it beats the incumbent, retrying until no other worker interferes.
+     */
+    private static void offer(AtomicReference<TspResult> incumbent, int[] path, int cost) {
+        TspResult candidate = new TspResult(path, cost);
+        TspResult current = incumbent.get();
+        while (BranchAndBoundSolution.isBetter(cost, path, current.getCost(), current.getPath())) {
+            if (incumbent.compareAndSet(current, candidate)) {
+                return;
+            }
+            current = incumbent.get();
+        }
+    }
+
+    /**
+     * Tasks whose subtrees are still being searched, and the state of the snapshot in progress.
+     * Tasks are added and removed, and snapshots started, while holding the frontier's lock.
+     */
+    private static final class Frontier {
+        final Set<SubtreeTask> live = new HashSet<>();
+        volatile int epoch;
+        volatile boolean stopped;
+        volatile RuntimeException failure;
+
+        /**
+         * Starts a snapshot and collects the open nodes of every task that was live when it
+         * started, waiting for running tasks to publish their stacks.
+         *
+         * @return Open nodes covering every unexplored tour, or null if the search was stopped
+         */
+        Node[] capture() {
+            int current;
+            List<SubtreeTask> tasks;
+            synchronized (this) {
+                current = ++epoch;
+                tasks = new ArrayList<>(live);
+            }
+            List<Node> open = new ArrayList<>();
+            for (SubtreeTask task : tasks) {
+                if (!task.started) {
+                    Collections.addAll(open, task.start);
+                    continue;
+                }
+                while (task.publishedEpoch != current && !task.finished) {
+                    if (stopped) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(PUBLISH_WAIT_NANOS);
+                }
+                // A task that finished without publishing left its open nodes to tasks it forked
+                // before the snapshot started, which are in the list themselves.
+                if (task.publishedEpoch == current) {
+                    Collections.addAll(open, task.published);
+                }
+            }
+            // Stopped tasks drop their stacks without publishing them.
+            return stopped ? null : open.toArray(new Node[0]);
+        }
+    }
+
+    /**
+     * Depth-first search of the subtrees below some nodes.
+     */
+    private class SubtreeTask extends RecursiveAction {
+        private final DistanceMatrix graph;
+        private final TourBounds sharedBounds;
+        private final AtomicReference<TspResult> incumbent;
+        private final Frontier frontier;
+        private final Node[] start;
+
+        private volatile boolean started;
+        private volatile boolean finished;
+        private volatile int publishedEpoch;
+        private volatile Node[] published;
+
+        /**
+         * @param start Nodes to search from, the one to explore first at index 0
+         */
+        SubtreeTask(DistanceMatrix graph, TourBounds sharedBounds, AtomicReference<TspResult> incumbent, Frontier frontier, Node[] start) {
+            this.graph = graph;
+            this.sharedBounds = sharedBounds;
+            this.incumbent = incumbent;
+            this.frontier = frontier;
+            this.start = start;
+            this.publishedEpoch = frontier.epoch;
+        }
+
+        @Override
+        protected void compute() {
+            started = true;
+            int n = graph.size();
+            TourBounds bounds = sharedBounds.copy();
+            boolean[] visited = new boolean[n];
+            Deque<Node> stack = new ArrayDeque<>(Arrays.asList(start));
+            List<Node> children = new ArrayList<>();
+            List<SubtreeTask> forked = new ArrayList<>();
+            long expanded = 0;
+
+            while (!stack.isEmpty() && !frontier.stopped) {
+                if (frontier.epoch != publishedEpoch) {
+                    publish(stack);
+                }
+                if (stack.size() > 1 && getSurplusQueuedTaskCount() < SPLIT_THRESHOLD) {
+                    forked.add(split(stack));
+                }
+
+                Node node = stack.pop();
+                TspResult best = incumbent.get();
+                if (!BranchAndBoundSolution.canImprove(node, best.getCost(), best.getPath())) {
+                    continue;
+                }
+                expanded++;
+
+                children.clear();
+                Arrays.fill(visited, false);
+                for (int city : node.path) {
+                    visited[city] = true;
+                }
+                int depth = node.path.length;
+                int last = node.path[depth - 1];
+                for (int city = 1; city < n; city++) {
+                    if (visited[city]) {
+                        continue;
+                    }
+                    int[] childPath = Arrays.copyOf(node.path, depth + 1);
+                    childPath[depth] = city;
+                    int childCost = node.cost + graph.get(last, city);
+
+                    if (depth + 1 == n) {
+                        offer(incumbent, Arrays.copyOf(childPath, n + 1), childCost + graph.get(city, 0));
+                        continue;
+                    }
+
+                    visited[city] = true;
+                    Node child = new Node(childPath, childCost, bounds.lowerBound(childPath, depth + 1, childCost, visited));
+                    visited[city] = false;
+                    best = incumbent.get();
+                    if (BranchAndBoundSolution.canImprove(child, best.getCost(), best.getPath())) {
+                        children.add(child);
+                    }
+                }
+
+                children.sort(Node.BY_BOUND.reversed());
+                for (Node child : children) {
+                    stack.push(child);
+                }
+            }
+
+            // The rest of the subtree now lies with the forked tasks, which are live themselves.
+            synchronized (frontier) {
+                frontier.live.remove(this);
+            }
+            finished = true;
+
+            Thread thread = Thread.currentThread();
+            int worker = thread instanceof ForkJoinWorkerThread ? ((ForkJoinWorkerThread) thread).getPoolIndex() : 0;
+            workerNodeCounts.computeIfAbsent(worker, key -> new LongAdder()).add(expanded);
+            nodeCount.add(expanded);
+
+            for (SubtreeTask task : forked) {
+                task.join();
+            }
+        }
+
+        private void publish(Deque<Node> stack) {
+            int current = frontier.epoch;
+            published = stack.toArray(new Node[0]);
+            publishedEpoch = current;
+        }
+
+        /**
+         * Hands the shallowest open node to a new task. A snapshot started since the last check
+         * does not know the new task, so the stack, still holding the node, is published first.
+         */
+        private SubtreeTask split(Deque<Node> stack) {
+            SubtreeTask task;
+            synchronized (frontier) {
+                if (frontier.epoch != publishedEpoch) {
+                    publish(stack);
+                }
+                task = new SubtreeTask(graph, sharedBounds, incumbent, frontier, new Node[]{stack.pollLast()});
+                frontier.live.add(task);
+            }
+            task.fork();
+            return task;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package polsl.tsp.complex;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Exhaustive search split across worker threads. The (n-1)! tours starting in city 0 are
+ * numbered by the lexicographic rank of their permutation; the rank space is cut into contiguous
+ * ranges, and each task unranks the start of its range into a {@link PermutationCursor} and
+ * walks it in place. Partial results are merged by cost and then by rank, so the returned tour is
+ * the first optimal one in lexicographic order regardless of how the work was scheduled.
+ */
+public class ParallelBruteForceSolution implements TspAlgorithm {
+
+    /**
+     * Largest instance whose number of tours still fits in a long.
+     */
+    public static final int MAX_CITIES = PermutationCursor.MAX_RANKED_SIZE + 1;
+
+    /**
+     * Ranges are cut this much finer than the number of workers to even out uneven progress.
+     */
+    private static final int RANGES_PER_WORKER = 16;
+
+    private final int parallelism;
+
+    public ParallelBruteForceSolution() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism Number of worker threads
+     */
+    public ParallelBruteForceSolution(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
+        if (n == 1) {
+            return new TspResult(new int[]{0}, 0);
+        }
+        if (n > MAX_CITIES) {
+            throw new IllegalArgumentException("Brute force supports at most " + MAX_CITIES + " cities, got " + n);
+        }
+
+        long total = PermutationCursor.factorial(n - 1);
+        long grain = Math.max(1, total / ((long) parallelism * RANGES_PER_WORKER));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        RangeBest best;
+        try {
+            best = pool.invoke(new RangeTask(graph.toFlatArray(), n, 0, total, grain));
+        } finally {
+            pool.shutdown();
+        }
+
+        PermutationCursor cursor = new PermutationCursor(1, n - 1);
+        cursor.unrank(best.rank);
+        int[] path = new int[n + 1];
+        System.arraycopy(cursor.current(), 0, path, 1, n - 1);
+        return new TspResult(path, best.cost);
+    }
+
+    /**
+     * Cheapest tour of a rank range; only the rank is kept, the tour is rebuilt at the end.
+     */
+    private static class RangeBest {
+        final long rank;
+        final int cost;
+
+        RangeBest(long rank, int cost) {
+            this.rank = rank;
+            this.cost = cost;
+        }
+
+        RangeBest min(RangeBest other) {
+            if (other.cost != cost) {
+                return other.cost < cost ? other : this;
+            }
+            return other.rank < rank ? other : this;
+        }
+    }
+
+    private static class RangeTask extends RecursiveTask<RangeBest> {
+        private final int[] distances;
+        private final int n;
+        private final long fromRank;
+        private final long toRank;
+        private final long grain;
+
+        /**
+         * @param distances Row-major copy of the distance matrix of {@code n} cities
+         */
+        RangeTask(int[] distances, int n, long fromRank, long toRank, long grain) {
+            this.distances = distances;
+            this.n = n;
+            this.fromRank = fromRank;
+            this.toRank = toRank;
+            this.grain = grain;
+        }
+
+        @Override
+        protected RangeBest compute() {
+            if (toRank - fromRank > grain) {
+                long middle = fromRank + (toRank - fromRank) / 2;
+                RangeTask left = new RangeTask(distances, n, fromRank, middle, grain);
+                RangeTask right = new RangeTask(distances, n, middle, toRank, grain);
+                left.fork();
+                RangeBest rightBest = right.compute();
+                return left.join().min(rightBest);
+            }
+
+            PermutationCursor cursor = new PermutationCursor(1, n - 1);
+            cursor.unrank(fromRank);
+            int[] cities = cursor.current();
+            long bestRank = fromRank;
+            int bestCost = Integer.MAX_VALUE;
+            for (long rank = fromRank; rank < toRank; rank++) {
+                int cost = 0;
+                int from = 0;
+                for (int to : cities) {
+                    cost += distances[from * n + to];
+                    from = to;
+                }
+                cost += distances[from * n];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestRank = rank;
+                }
+                cursor.next();
+            }
+            return new RangeBest(bestRank, bestCost);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package polsl.tsp.complex;
+
+/**
+ * Walks all permutations of a range of cities in lexicographic order, in place.
+ * The cursor owns a single {@code int[]} that is rearranged by {@link #next()}, so enumerating
+ * all permutations allocates nothing beyond the cursor itself. This replaces building a list of
+ * every permutation up front, which runs out of memory long before the enumeration would finish.
+ * <p>
+ * Permutations can also be addressed by their lexicographic rank through the factorial number
+ * system, which lets several cursors share one enumeration by contiguous rank ranges.
+ */
+public class PermutationCursor {
+
+    /**
+     * Largest range whose number of permutations still fits in a long.
+     */
+    public static final int MAX_RANKED_SIZE = 20;
+
+    private final int[] elements;
+    private final int first;
+
+    /**
+     * Creates a cursor positioned at the first permutation {@code first, first + 1, ...}.
+     *
+     * @param first Smallest city of the range
+     * @param count Number of cities in the range
+     */
+    public PermutationCursor(int first, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        this.first = first;
+        this.elements = new int[count];
+        fillAscending();
+    }
+
+    /**
+     * Returns the current permutation. The array is reused by the cursor and must not be modified.
+     */
+    public int[] current() {
+        return elements;
+    }
+
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * Moves back to the first (ascending) permutation.
+     */
+    public void reset() {
+        fillAscending();
+    }
+
+    private void fillAscending() {
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = first + i;
+        }
+    }
+
+    /**
+     * Moves to the permutation with the given lexicographic rank, 0 being the ascending one.
+     * The rank is decoded digit by digit in the factorial number system: the digit of position i
+     * selects which of the cities not used so far comes next.
+     *
+     * @param rank Rank between 0 and {@code factorial(size()) - 1}
+     */
+    public void unrank(long rank) {
+        if (elements.length > MAX_RANKED_SIZE) {
+            throw new IllegalStateException("Ranking supports at most " + MAX_RANKED_SIZE + " elements");
+        }
+        if (rank < 0 || rank >= factorial(elements.length)) {
+            throw new IllegalArgumentException("Rank out of range: " + rank);
+        }
+        fillAscending();
+        for (int i = 0; i < elements.length; i++) {
+            long weight = factorial(elements.length - 1 - i);
+            int digit = (int) (rank / weight);
+            rank %= weight;
+            // Rotate the selected city to position i; the tail stays in ascending order.
+            int selected = elements[i + digit];
+            System.arraycopy(elements, i, elements, i + 1, digit);
+            elements[i] = selected;
+        }
+    }
+
+    /**
+     * @return k!, for k up to {@link #MAX_RANKED_SIZE}
+     */
+    public static long factorial(int k) {
+        long result = 1;
+        for (int i = 2; i <= k; i++) {
+            result *= i;
+        }
+        return result;
+    }
+
+    /**
+     * Advances to the lexicographically next permutation.
+     *
+     * @return false if the current permutation was the last one, in which case it is left unchanged
+     */
+    public boolean next() {
+        int i = elements.length - 2;
+        while (i >= 0 && elements[i] >= elements[i + 1]) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+
+        int j = elements.length - 1;
+        while (elements[j] <= elements[i]) {
+            j--;
+        }
+        swap(i, j);
+
+        for (int start = i + 1, end = elements.length - 1; start < end; start++, end--) {
+            swap(start, end);
+        }
+        return true;
+    }
+
+    private void swap(int i, int j) {
+        int temp = elements[i];
+        elements[i] = elements[j];
+        elements[j] = temp;
+    }
+}
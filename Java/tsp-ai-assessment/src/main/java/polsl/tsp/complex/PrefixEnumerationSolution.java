@@ -0,0 +1,87 @@
+package polsl.tsp.complex;
+
+/**
+ * Exhaustive search that shares work between tours with a common prefix. Tours are enumerated
+ * depth-first and the cost of every prefix is carried down the recursion, so each complete tour
+ * is scored with a single addition instead of a full O(n) pass. The cities not yet visited are
+ * kept behind the prefix in the same array, and a level tries each of them by swapping it to the
+ * front of that suffix and back, so a prefix only iterates over the cities that can extend it.
+ * Since a level k prefix is shared by (n-1-k)! tours, the total work stays within a constant
+ * factor of the number of tours.
+ * <p>
+ * On symmetric matrices a tour and its mirror image cost the same. Only tours that visit city 1
+ * before city 2 are enumerated, which keeps exactly one tour of every mirrored pair and halves
+ * the search. Asymmetric matrices are always enumerated in full.
+ */
+public class PrefixEnumerationSolution implements TspAlgorithm {
+
+    @Override
+    public TspResult solveTSP(DistanceMatrix graph) {
+        int n = graph.size();
+        if (n == 1) {
+            return new TspResult(new int[]{0}, 0);
+        }
+
+        Enumeration enumeration = new Enumeration(graph, n >= 3 && graph.isSymmetric());
+        enumeration.extend(1, 0);
+        return new TspResult(enumeration.bestPath, enumeration.bestCost);
+    }
+
+    /**
+     * State of one enumeration: the current prefix and the best tour found so far.
+     */
+    private static class Enumeration {
+        private final int[] distances;
+        private final int n;
+        private final boolean skipMirrors;
+        private boolean visitedOne;
+        // path[0..depth-1] is the prefix and path[depth..n-1] holds the cities still to visit.
+        private final int[] path;
+        private final int[] bestPath;
+        private int bestCost = Integer.MAX_VALUE;
+
+        Enumeration(DistanceMatrix graph, boolean skipMirrors) {
+            this.distances = graph.toFlatArray();
+            this.n = graph.size();
+            this.skipMirrors = skipMirrors;
+            this.path = new int[n + 1];
+            this.bestPath = new int[n + 1];
+            for (int city = 0; city < n; city++) {
+                path[city] = city;
+            }
+        }
+
+        /**
+         * Extends the prefix {@code path[0..depth-1]} of cost {@code prefixCost} in every possible way.
+         */
+        void extend(int depth, int prefixCost) {
+            int last = path[depth - 1];
+            if (depth == n) {
+                int cost = prefixCost + distances[last * n];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    System.arraycopy(path, 0, bestPath, 0, n + 1);
+                }
+                return;
+            }
+
+            for (int i = depth; i < n; i++) {
+                int city = path[i];
+                if (skipMirrors && city == 2 && !visitedOne) {
+                    continue;
+                }
+                path[i] = path[depth];
+                path[depth] = city;
+                if (city == 1) {
+                    visitedOne = true;
+                }
+                extend(depth + 1, prefixCost + distances[last * n + city]);
+                if (city == 1) {
+                    visitedOne = false;
+                }
+                path[depth] = path[i];
+                path[i] = city;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package polsl.tsp.complex;
+
+/**
+ * Distance matrix storing every cost as a 16-bit code, decoded as {@code offset + step * code}.
+ * It covers costs that are too large for {@code char} or {@code short} but span at most 65536
+ * multiples of a common unit, e.g. road distances in metres rounded to 10 m. The encoding is
+ * exact, so solvers see the same costs as in the original matrix; the price is a multiply-add on
+ * every read.
+ */
+final class ScaledDistanceMatrix extends ArrayDistanceMatrix {
+
+    private final char[] codes;
+    private final int offset;
+    private final int step;
+
+    ScaledDistanceMatrix(int size, boolean triangular, int entries, int offset, int step) {
+        super(size, triangular);
+        this.codes = new char[entries];
+        this.offset = offset;
+        this.step = step;
+    }
+
+    @Override
+    public int get(int from, int to) {
+        // The product may overflow for costs near the int limits; the sum still comes out exact.
+        return offset + step * codes[index(from, to)];
+    }
+
+    @Override
+    void set(int index, int value) {
+        codes[index] = (char) (((long) value - offset) / step);
+    }
+}
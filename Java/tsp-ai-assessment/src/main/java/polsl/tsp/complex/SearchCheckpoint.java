@@ -0,0 +1,199 @@
+package polsl.tsp.complex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import polsl.tsp.complex.BranchAndBoundSolution.Node;
+
+/**
+ * Snapshot of a branch-and-bound search: the incumbent tour and every open node.
+ * Nodes are immutable once created, so a snapshot only copies references and can be encoded on
+ * another thread while the search goes on. The binary encoding stores cities in one, two or
+ * four bytes depending on the instance size. The sequential and the parallel solver write the
+ * same format, so either can resume a search checkpointed by the other.
+ */
+class SearchCheckpoint {
+
+    private static final int MAGIC = 0x42424350; // "BBCP"
+    private static final int VERSION = 1;
+
+    final int n;
+    final long fingerprint;
+    final long nodeCount;
+    final TspResult incumbent;
+    final Node[] stack;
+    final Node[] queue;
+
+    /**
+     * @param n           Number of cities
+     * @param fingerprint Hash of the matrix the search runs on
+     * @param nodeCount   Nodes expanded so far
+     * @param incumbent   Best tour found so far
+     * @param stack       Depth-first stack, top first
+     * @param queue       Best-first queue, in any order
+     */
+    SearchCheckpoint(int n, long fingerprint, long nodeCount, TspResult incumbent, Node[] stack, Node[] queue) {
+        this.n = n;
+        this.fingerprint = fingerprint;
+        this.nodeCount = nodeCount;
+        this.incumbent = incumbent;
+        this.stack = stack;
+        this.queue = queue;
+    }
+
+    /**
+     * Reads the snapshot left in a file by an earlier search on the same matrix.
+     *
+     * @return The snapshot, or null if there is no file or it belongs to another instance
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    static SearchCheckpoint resume(Path file, int n, long fingerprint) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return read(file, n, fingerprint);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Checkpoint could not be read from " + file, e);
+        }
+    }
+
+    /**
+     * Like {@link #write(Path)}, for use on the writer thread.
+     *
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    void save(Path file) {
+        try {
+            write(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Checkpoint could not be written to " + file, e);
+        }
+    }
+
+    /**
+     * Shuts down a checkpoint writer and waits for a snapshot still being written, even if the
+     * calling thread is interrupted, so that no write outlives the search.
+     */
+    static void shutdown(ExecutorService writer) {
+        writer.shutdown();
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (true) {
+                try {
+                    writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot next to the target file and atomically replaces the target, so a crash
+     * during the write leaves the previous checkpoint intact.
+     */
+    void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(n);
+            out.writeLong(fingerprint);
+            out.writeLong(nodeCount);
+            out.writeInt(incumbent.getCost());
+            writeCities(out, incumbent.getPath(), incumbent.getPath().length);
+            writeNodes(out, stack);
+            writeNodes(out, queue);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot, or returns null if the file belongs to another instance.
+     */
+    static SearchCheckpoint read(Path file, int n, long fingerprint) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION || in.readInt() != n || in.readLong() != fingerprint) {
+                return null;
+            }
+            long nodeCount = in.readLong();
+            int cost = in.readInt();
+            TspResult incumbent = new TspResult(readCities(in, n, n + 1), cost);
+            Node[] stack = readNodes(in, n);
+            Node[] queue = readNodes(in, n);
+            return new SearchCheckpoint(n, fingerprint, nodeCount, incumbent, stack, queue);
+        }
+    }
+
+    private void writeNodes(DataOutputStream out, Node[] nodes) throws IOException {
+        out.writeInt(nodes.length);
+        for (Node node : nodes) {
+            writeCity(out, n, node.path.length);
+            out.writeInt(node.cost);
+            out.writeInt(node.bound);
+            writeCities(out, node.path, node.path.length);
+        }
+    }
+
+    private static Node[] readNodes(DataInputStream in, int n) throws IOException {
+        Node[] nodes = new Node[in.readInt()];
+        for (int i = 0; i < nodes.length; i++) {
+            int depth = readCity(in, n);
+            int cost = in.readInt();
+            int bound = in.readInt();
+            nodes[i] = new Node(readCities(in, n, depth), cost, bound);
+        }
+        return nodes;
+    }
+
+    private void writeCities(DataOutputStream out, int[] cities, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            writeCity(out, n, cities[i]);
+        }
+    }
+
+    private static int[] readCities(DataInputStream in, int n, int count) throws IOException {
+        int[] cities = new int[count];
+        for (int i = 0; i < count; i++) {
+            cities[i] = readCity(in, n);
+        }
+        return cities;
+    }
+
+    /**
+     * Values up to n (a city or a path length) in the narrowest width that fits them.
+     */
+    private static void writeCity(DataOutputStream out, int n, int value) throws IOException {
+        if (n < 0xFF) {
+            out.writeByte(value);
+        } else if (n < 0xFFFF) {
+            out.writeShort(value);
+        } else {
+            out.writeInt(value);
+        }
+    }
+
+    private static int readCity(DataInputStream in, int n) throws IOException {
+        if (n < 0xFF) {
+            return in.readUnsignedByte();
+        } else if (n < 0xFFFF) {
+            return in.readUnsignedShort();
+        }
+        return in.readInt();
+    }
+}
@@ -0,0 +1,24 @@
+package polsl.tsp.complex;
+
+/**
+ * Distance matrix storing costs in -32768..32767 as {@code short}, read back without any decoding.
+ */
+final class ShortDistanceMatrix extends ArrayDistanceMatrix {
+
+    private final short[] distances;
+
+    ShortDistanceMatrix(int size, boolean triangular, int entries) {
+        super(size, triangular);
+        this.distances = new short[entries];
+    }
+
+    @Override
+    public int get(int from, int to) {
+        return distances[index(from, to)];
+    }
+
+    @Override
+    void set(int index, int value) {
+        distances[index] = (short) value;
+    }
+}
@@ -0,0 +1,57 @@
+package polsl.tsp.complex;
+
+/**
+ * Cyclic order of the cities, as rearranged by local search: neighbour and order queries, and
+ * reversal of a path. A reversal may leave either the path or the rest of the tour reversed,
+ * which gives the same cycle but may change which neighbour of a city is {@link #next}, so
+ * callers read the neighbours again after every reversal.
+ * <p>
+ * {@link ArrayTour} answers queries fastest but pays O(n) per reversal, while {@link
+ * TwoLevelTour} answers them a few times slower and reverses in O(sqrt n); {@link #of} picks one
+ * by the number of cities.
+ */
+public interface Tour {
+
+    /**
+     * @param order        Cities in tour order, each once
+     * @param twoLevelFrom Number of cities from which a {@link TwoLevelTour} pays off, which is
+     *                     lower the more reversals a heuristic makes per query
+     * @return {@link TwoLevelTour} for at least {@code twoLevelFrom} cities, {@link ArrayTour}
+     * otherwise
+     */
+    static Tour of(int[] order, int twoLevelFrom) {
+        return order.length >= twoLevelFrom ? new TwoLevelTour(order) : new ArrayTour(order);
+    }
+
+    /**
+     * @return Number of cities
+     */
+    int size();
+
+    /**
+     * @return City after the given one
+     */
+    int next(int city);
+
+    /**
+     * @return City before the given one
+     */
+    int previous(int city);
+
+    /**
+     * @return Whether {@code b} lies on the path from {@code a} forward to {@code c}, both ends
+     * included
+     */
+    boolean between(int a, int b, int c);
+
+    /**
+     * Reverses the path from {@code from} forward to {@code to}: the city before {@code from}
+     * becomes adjacent to {@code to}, and {@code from} to the city after {@code to}.
+     */
+    void reverse(int from, int to);
+
+    /**
+     * @return Cities in tour order, starting from city 0
+     */
+    int[] toArray();
+}
@@ -0,0 +1,374 @@
+package polsl.tsp.complex;
+
+import java.util.Arrays;
+
+/**
+ * Lower bounds on the cost of completing a partial tour, used by the branch-and-bound solvers.
+ * A partial tour starts in city 0 and ends in its last city; completing it means a path from the
+ * last city through all unvisited cities back to 0. Two bounds are available:
+ * <ul>
+ *     <li>the reduced cost matrix bound, valid for any matrix: every remaining row and column of
+ *     the sub-matrix has to be used exactly once, so row and column minima can be subtracted.
+ *     For asymmetric matrices the reduction is taken to optimality by solving the assignment
+ *     relaxation with the Hungarian algorithm,</li>
+ *     <li>the 1-tree bound for symmetric matrices: the unvisited cities are spanned by the path,
+ *     so their minimum spanning tree plus the cheapest attachments to the two ends is a bound.
+ *     Edge costs are adjusted by Held-Karp node penalties computed once at the root.</li>
+ * </ul>
+ * Instances hold scratch arrays and are not thread-safe; parallel searches use one per worker.
+ */
+class TourBounds {
+
+    private static final double EPSILON = 1e-7;
+    private static final int FORBIDDEN = Integer.MAX_VALUE / 4;
+
+    private final DistanceMatrix graph;
+    private final int n;
+    private final boolean symmetric;
+    private final double[] penalties;
+
+    private final int[] remaining;
+    private final int[] rowMinimum;
+    private final int[] rowPotential;
+    private final int[] columnPotential;
+    private final int[] columnMatch;
+    private final int[] way;
+    private final int[] slack;
+    private final boolean[] used;
+    private final double[] key;
+    private final boolean[] inTree;
+
+    /**
+     * @param graph     The distance matrix
+     * @param symmetric Whether the 1-tree bound may be used
+     * @param penalties Held-Karp node penalties for the 1-tree bound, ignored for asymmetric matrices
+     */
+    TourBounds(DistanceMatrix graph, boolean symmetric, double[] penalties) {
+        this.graph = graph;
+        this.n = graph.size();
+        this.symmetric = symmetric;
+        this.penalties = penalties;
+        this.remaining = new int[n];
+        this.rowMinimum = new int[n + 1];
+        this.rowPotential = new int[n + 2];
+        this.columnPotential = new int[n + 2];
+        this.columnMatch = new int[n + 2];
+        this.way = new int[n + 2];
+        this.slack = new int[n + 2];
+        this.used = new boolean[n + 2];
+        this.key = new double[n];
+        this.inTree = new boolean[n];
+    }
+
+    /**
+     * @return Bounds over the same matrix and penalties with their own scratch arrays
+     */
+    TourBounds copy() {
+        return new TourBounds(graph, symmetric, penalties);
+    }
+
+    /**
+     * Lower bound on the cost of any tour that starts with the given partial path.
+     *
+     * @param path    Partial path, starting with city 0
+     * @param depth   Number of cities in the partial path
+     * @param cost    Cost of the partial path
+     * @param visited Cities contained in the partial path
+     * @return A lower bound on the full tour cost
+     */
+    int lowerBound(int[] path, int depth, int cost, boolean[] visited) {
+        int last = path[depth - 1];
+        int count = 0;
+        for (int city = 1; city < n; city++) {
+            if (!visited[city]) {
+                remaining[count++] = city;
+            }
+        }
+        if (count == 0) {
+            return cost + graph.get(last, 0);
+        }
+        if (count == 1) {
+            return cost + graph.get(last, remaining[0]) + graph.get(remaining[0], 0);
+        }
+
+        int bound = symmetric
+                ? Math.max(reducedMatrixBound(last, count), oneTreeBound(last, count))
+                : assignmentBound(last, count);
+        return cost + bound;
+    }
+
+    /**
+     * Row and column reduction of the sub-matrix with rows {last} + unvisited and columns
+     * unvisited + {0}. The edge from the last city straight back to 0 is excluded.
+     */
+    private int reducedMatrixBound(int last, int count) {
+        int bound = 0;
+        // Row index count stands for the last city, column index count for city 0.
+        for (int r = 0; r <= count; r++) {
+            int from = r == count ? last : remaining[r];
+            int min = Integer.MAX_VALUE;
+            for (int c = 0; c < count; c++) {
+                if (c != r && graph.get(from, remaining[c]) < min) {
+                    min = graph.get(from, remaining[c]);
+                }
+            }
+            if (r != count && graph.get(from, 0) < min) {
+                min = graph.get(from, 0);
+            }
+            rowMinimum[r] = min;
+            bound += min;
+        }
+        for (int c = 0; c <= count; c++) {
+            int to = c == count ? 0 : remaining[c];
+            int min = Integer.MAX_VALUE;
+            for (int r = 0; r <= count; r++) {
+                if (r == c) {
+                    continue; // the diagonal, or the excluded edge last -> 0
+                }
+                int from = r == count ? last : remaining[r];
+                int reduced = graph.get(from, to) - rowMinimum[r];
+                if (reduced < min) {
+                    min = reduced;
+                }
+            }
+            bound += min;
+        }
+        return bound;
+    }
+
+    /**
+     * Optimal assignment on the same sub-matrix as {@link #reducedMatrixBound}, solved with the
+     * O(k^3) Hungarian algorithm. Its dual potentials form the strongest possible row and column
+     * reduction, so the bound is never weaker than the plain reduction.
+     */
+    private int assignmentBound(int last, int count) {
+        int size = count + 1;
+        // Rows and columns are 1-based here; row/column size stands for the last city and city 0.
+        Arrays.fill(rowPotential, 0, size + 1, 0);
+        Arrays.fill(columnPotential, 0, size + 1, 0);
+        Arrays.fill(columnMatch, 0, size + 1, 0);
+        for (int row = 1; row <= size; row++) {
+            columnMatch[0] = row;
+            int column = 0;
+            Arrays.fill(slack, 0, size + 1, Integer.MAX_VALUE);
+            Arrays.fill(used, 0, size + 1, false);
+            do {
+                used[column] = true;
+                int matchedRow = columnMatch[column];
+                int delta = Integer.MAX_VALUE;
+                int nextColumn = 0;
+                for (int j = 1; j <= size; j++) {
+                    if (used[j]) {
+                        continue;
+                    }
+                    int reduced = subMatrixCost(last, count, matchedRow - 1, j - 1)
+                            - rowPotential[matchedRow] - columnPotential[j];
+                    if (reduced < slack[j]) {
+                        slack[j] = reduced;
+                        way[j] = column;
+                    }
+                    if (slack[j] < delta) {
+                        delta = slack[j];
+                        nextColumn = j;
+                    }
+                }
+                for (int j = 0; j <= size; j++) {
+                    if (used[j]) {
+                        rowPotential[columnMatch[j]] += delta;
+                        columnPotential[j] -= delta;
+                    } else {
+                        slack[j] -= delta;
+                    }
+                }
+                column = nextColumn;
+            } while (columnMatch[column] != 0);
+            do {
+                int previousColumn = way[column];
+                columnMatch[column] = columnMatch[previousColumn];
+                column = previousColumn;
+            } while (column != 0);
+        }
+        return -columnPotential[0];
+    }
+
+    /**
+     * Cost of the sub-matrix cell used by the assignment bound, with forbidden cells priced so
+     * high that they never appear in an optimal assignment.
+     */
+    private int subMatrixCost(int last, int count, int row, int column) {
+        if (row == column) {
+            return FORBIDDEN; // the diagonal, or the excluded edge last -> 0
+        }
+        int from = row == count ? last : remaining[row];
+        int to = column == count ? 0 : remaining[column];
+        return graph.get(from, to);
+    }
+
+    /**
+     * Minimum spanning tree of the unvisited cities plus the cheapest edge to each end of the
+     * partial path, under penalised costs, converted back to a bound on the original costs.
+     */
+    private int oneTreeBound(int last, int count) {
+        double total = spanningTree(count);
+        double penaltySum = 0;
+        for (int i = 0; i < count; i++) {
+            penaltySum += penalties[remaining[i]];
+        }
+
+        if (last == 0) {
+            double first = Double.MAX_VALUE;
+            double second = Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                double edge = penalised(0, remaining[i]);
+                if (edge < first) {
+                    second = first;
+                    first = edge;
+                } else if (edge < second) {
+                    second = edge;
+                }
+            }
+            total += first + second - 2 * penaltySum - 2 * penalties[0];
+        } else {
+            double toLast = Double.MAX_VALUE;
+            double toStart = Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                toLast = Math.min(toLast, penalised(last, remaining[i]));
+                toStart = Math.min(toStart, penalised(remaining[i], 0));
+            }
+            total += toLast + toStart - 2 * penaltySum - penalties[last] - penalties[0];
+        }
+        return (int) Math.ceil(total - EPSILON);
+    }
+
+    /**
+     * Prim's algorithm over the first {@code count} entries of {@link #remaining}.
+     */
+    private double spanningTree(int count) {
+        for (int i = 0; i < count; i++) {
+            key[i] = Double.MAX_VALUE;
+            inTree[i] = false;
+        }
+        key[0] = 0;
+        double total = 0;
+        for (int step = 0; step < count; step++) {
+            int next = -1;
+            for (int i = 0; i < count; i++) {
+                if (!inTree[i] && (next == -1 || key[i] < key[next])) {
+                    next = i;
+                }
+            }
+            inTree[next] = true;
+            total += key[next];
+            for (int i = 0; i < count; i++) {
+                if (!inTree[i]) {
+                    double edge = penalised(remaining[next], remaining[i]);
+                    if (edge < key[i]) {
+                        key[i] = edge;
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    private double penalised(int from, int to) {
+        return graph.get(from, to) + penalties[from] + penalties[to];
+    }
+
+    /**
+     * Held-Karp node penalties found by subgradient optimisation of the 1-tree bound on the full
+     * instance. Any penalties give a valid bound; these make it as tight as the search allows.
+     *
+     * @param graph      Symmetric distance matrix
+     * @param upperBound Cost of a known tour, used for the step size
+     * @return The best penalties found
+     */
+    static double[] heldKarpPenalties(DistanceMatrix graph, int upperBound) {
+        int n = graph.size();
+        double[] penalties = new double[n];
+        double[] best = new double[n];
+        if (n < 3) {
+            return best;
+        }
+
+        int[] degree = new int[n];
+        int[] treeParent = new int[n];
+        double[] key = new double[n];
+        boolean[] inTree = new boolean[n];
+        double bestBound = -Double.MAX_VALUE;
+        double lambda = 2.0;
+        int period = Math.max(n / 2, 10);
+        int sinceImprovement = 0;
+
+        for (int iteration = 0; iteration < 50 * n && lambda > 1e-4; iteration++) {
+            // 1-tree: spanning tree over cities 1..n-1 plus the two cheapest edges of city 0.
+            Arrays.fill(degree, 0);
+            Arrays.fill(inTree, false);
+            Arrays.fill(key, Double.MAX_VALUE);
+            key[1] = 0;
+            treeParent[1] = -1;
+            double treeCost = 0;
+            for (int step = 1; step < n; step++) {
+                int next = -1;
+                for (int i = 1; i < n; i++) {
+                    if (!inTree[i] && (next == -1 || key[i] < key[next])) {
+                        next = i;
+                    }
+                }
+                inTree[next] = true;
+                treeCost += key[next];
+                if (treeParent[next] >= 0) {
+                    degree[next]++;
+                    degree[treeParent[next]]++;
+                }
+                for (int i = 1; i < n; i++) {
+                    double edge = graph.get(next, i) + penalties[next] + penalties[i];
+                    if (!inTree[i] && edge < key[i]) {
+                        key[i] = edge;
+                        treeParent[i] = next;
+                    }
+                }
+            }
+            int first = -1;
+            int second = -1;
+            for (int i = 1; i < n; i++) {
+                double edge = graph.get(0, i) + penalties[0] + penalties[i];
+                if (first == -1 || edge < graph.get(0, first) + penalties[0] + penalties[first]) {
+                    second = first;
+                    first = i;
+                } else if (second == -1 || edge < graph.get(0, second) + penalties[0] + penalties[second]) {
+                    second = i;
+                }
+            }
+            treeCost += graph.get(0, first) + graph.get(0, second) + 2 * penalties[0] + penalties[first] + penalties[second];
+            degree[0] = 2;
+            degree[first]++;
+            degree[second]++;
+
+            double penaltySum = 0;
+            int squaredNorm = 0;
+            for (int i = 0; i < n; i++) {
+                penaltySum += penalties[i];
+                squaredNorm += (degree[i] - 2) * (degree[i] - 2);
+            }
+            double bound = treeCost - 2 * penaltySum;
+            if (bound > bestBound + EPSILON) {
+                bestBound = bound;
+                System.arraycopy(penalties, 0, best, 0, n);
+                sinceImprovement = 0;
+            } else if (++sinceImprovement >= period) {
+                lambda /= 2;
+                sinceImprovement = 0;
+            }
+            if (squaredNorm == 0 || bestBound > upperBound - 1 + EPSILON) {
+                break; // the 1-tree is a tour, or the bound already proves the upper bound optimal
+            }
+
+            double step = lambda * (upperBound - bound) / squaredNorm;
+            for (int i = 0; i < n; i++) {
+                penalties[i] += step * (degree[i] - 2);
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,17 @@
+package polsl.tsp.complex;
+
+/**
+ * Local search that turns a tour into a cheaper one, e.g. the output of a construction
+ * heuristic. Improvers are chained after a construction by {@link LocalSearchSolution}.
+ */
+public interface TourImprover {
+
+    /**
+     * Improves a tour.
+     *
+     * @param tour Closed tour of all cities of the matrix, as returned by {@link TspAlgorithm}
+     * @return Tour no more expensive than the given one, starting and ending in city 0
+     * @throws IllegalArgumentException if the path is not a closed tour of all cities
+     */
+    TspResult improve(DistanceMatrix graph, TspResult tour);
+}
@@ -0,0 +1,59 @@
+package polsl.tsp.complex;
+
+/**
+ * Conversions between the closed paths of {@link TspResult} and the open city orders that
+ * {@link TourImprover tour improvers} work on.
+ */
+final class Tours {
+
+    private Tours() {
+    }
+
+    /**
+     * @return The tour's cities in order, without the closing city
+     * @throws IllegalArgumentException if the path is not a closed tour of all cities
+     */
+    static int[] open(DistanceMatrix graph, TspResult tour) {
+        int n = graph.size();
+        int[] path = tour.getPath();
+        if (path == null || path.length != (n == 1 ? 1 : n + 1) || path[0] != path[path.length - 1]) {
+            throw new IllegalArgumentException("Path is not a closed tour of " + n + " cities");
+        }
+        boolean[] seen = new boolean[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            int city = path[i];
+            if (city < 0 || city >= n || seen[city]) {
+                throw new IllegalArgumentException("Path is not a closed tour of " + n + " cities");
+            }
+            seen[city] = true;
+            order[i] = city;
+        }
+        return order;
+    }
+
+    /**
+     * @param order Cities in tour order, without the closing city
+     * @return The tour rotated to start and end in city 0, with its cost
+     */
+    static TspResult close(DistanceMatrix graph, int[] order) {
+        int n = order.length;
+        if (n == 1) {
+            return new TspResult(new int[]{order[0]}, 0);
+        }
+        int offset = 0;
+        while (order[offset] != 0) {
+            offset++;
+        }
+        int[] path = new int[n + 1];
+        int cost = 0;
+        for (int i = 0; i < n; i++) {
+            path[i] = order[(offset + i) % n];
+            if (i > 0) {
+                cost += graph.get(path[i - 1], path[i]);
+            }
+        }
+        cost += graph.get(path[n - 1], 0);
+        return new TspResult(path, cost);
+    }
+}
@@ -1,5 +1,14 @@
 package polsl.tsp.complex;
 
 public interface TspAlgorithm {
-    TspResult solveTSP(int[][] graph);
+    TspResult solveTSP(DistanceMatrix graph);
+
+    /**
+     * Validates the jagged matrix, copies it into a {@link DistanceMatrix} and solves that.
+     *
+     * @throws IllegalArgumentException if the graph is null, empty, not square or has null rows
+     */
+    default TspResult solveTSP(int[][] graph) {
+        return solveTSP(DistanceMatrix.of(graph));
+    }
 }
@@ -0,0 +1,333 @@
+package polsl.tsp.complex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of TSPLIB instance files (.tsp and .atsp). Supported are the coordinate metrics of
+ * {@link CoordinateDistanceMatrix.Metric} in a NODE_COORD_SECTION, and EXPLICIT weights in the
+ * FULL_MATRIX, UPPER_ROW and LOWER_DIAG_ROW formats. Display data, fixed edges and tours are
+ * skipped.
+ * <p>
+ * The file is streamed through a direct buffer and numbers are parsed from the bytes straight
+ * into primitive arrays, so only the few header keywords ever become {@code String}s. A 100 000
+ * city coordinate file reads in a fraction of a second, and coordinate instances keep O(n) memory,
+ * as the distances are computed by {@link CoordinateDistanceMatrix}.
+ */
+public final class TsplibReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder token = new StringBuilder();
+    private int line = 1;
+
+    private int dimension = -1;
+    private String edgeWeightType;
+    private String edgeWeightFormat = "FULL_MATRIX";
+    private DistanceMatrix graph;
+
+    private TsplibReader(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /**
+     * Reads a TSPLIB instance.
+     *
+     * @return {@link CoordinateDistanceMatrix} for coordinate instances, otherwise an array-backed
+     * matrix, stored as a triangle for the UPPER_ROW and LOWER_DIAG_ROW formats
+     * @throws IOException if the file cannot be read, is malformed or uses an unsupported edge
+     *                     weight type or format
+     */
+    public static DistanceMatrix read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new TsplibReader(file, channel).read();
+        }
+    }
+
+    private DistanceMatrix read() throws IOException {
+        String keyword;
+        while ((keyword = nextKeyword()) != null && !keyword.equals("EOF")) {
+            switch (keyword) {
+                case "DIMENSION":
+                    dimension = parseDimension(headerValue());
+                    break;
+                case "EDGE_WEIGHT_TYPE":
+                    edgeWeightType = headerValue();
+                    break;
+                case "EDGE_WEIGHT_FORMAT":
+                    edgeWeightFormat = headerValue();
+                    break;
+                case "NODE_COORD_SECTION":
+                    graph = readCoordinates();
+                    break;
+                case "EDGE_WEIGHT_SECTION":
+                    graph = readWeights();
+                    break;
+                case "DISPLAY_DATA_SECTION":
+                    for (int i = 0; i < 3 * checkedDimension(); i++) {
+                        nextDouble();
+                    }
+                    break;
+                case "FIXED_EDGES_SECTION":
+                case "TOUR_SECTION":
+                    while (nextDouble() != -1) {
+                        // Skipped up to the terminating -1.
+                    }
+                    break;
+                default:
+                    // NAME, TYPE, COMMENT and other entries that do not affect the costs.
+                    headerValue();
+                    break;
+            }
+        }
+        if (graph == null) {
+            throw new IOException(file + " has no NODE_COORD_SECTION or EDGE_WEIGHT_SECTION");
+        }
+        return graph;
+    }
+
+    private int parseDimension(String value) throws IOException {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below.
+        }
+        throw error("Invalid DIMENSION " + value);
+    }
+
+    private int checkedDimension() throws IOException {
+        if (dimension < 0) {
+            throw error("DIMENSION must be given before the data sections");
+        }
+        return dimension;
+    }
+
+    private DistanceMatrix readCoordinates() throws IOException {
+        CoordinateDistanceMatrix.Metric metric;
+        try {
+            metric = CoordinateDistanceMatrix.Metric.valueOf(String.valueOf(edgeWeightType));
+        } catch (IllegalArgumentException e) {
+            throw error("Unsupported EDGE_WEIGHT_TYPE " + edgeWeightType);
+        }
+        int n = checkedDimension();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            // Nodes are numbered from 1 and usually, but not necessarily, listed in order.
+            double id = nextDouble();
+            int city = (int) id - 1;
+            if (city != id - 1 || city < 0 || city >= n) {
+                throw error("Node " + id + " is out of range 1.." + n);
+            }
+            x[city] = nextDouble();
+            y[city] = nextDouble();
+        }
+        return new CoordinateDistanceMatrix(x, y, metric);
+    }
+
+    private DistanceMatrix readWeights() throws IOException {
+        if (!"EXPLICIT".equals(edgeWeightType)) {
+            throw error("EDGE_WEIGHT_SECTION requires EDGE_WEIGHT_TYPE EXPLICIT, got " + edgeWeightType);
+        }
+        int n = checkedDimension();
+        // Numbers go straight into the backing array, which is narrowed once all are known.
+        IntDistanceMatrix weights;
+        switch (edgeWeightFormat) {
+            case "FULL_MATRIX":
+                weights = new IntDistanceMatrix(n, false, entries(n, false));
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < n; j++) {
+                        weights.set(weights.index(i, j), nextInt());
+                    }
+                }
+                break;
+            case "UPPER_ROW":
+                // The diagonal is not listed and stays 0.
+                weights = new IntDistanceMatrix(n, true, entries(n, true));
+                for (int i = 0; i < n; i++) {
+                    for (int j = i + 1; j < n; j++) {
+                        weights.set(weights.index(i, j), nextInt());
+                    }
+                }
+                break;
+            case "LOWER_DIAG_ROW":
+                weights = new IntDistanceMatrix(n, true, entries(n, true));
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j <= i; j++) {
+                        weights.set(weights.index(i, j), nextInt());
+                    }
+                }
+                break;
+            default:
+                throw error("Unsupported EDGE_WEIGHT_FORMAT " + edgeWeightFormat);
+        }
+        return DistanceMatrix.narrow(weights);
+    }
+
+    /**
+     * @return Length of the backing array of an explicit matrix
+     */
+    private int entries(int n, boolean triangular) throws IOException {
+        long entries = triangular ? (long) n * (n + 1) / 2 : (long) n * n;
+        if (entries > DistanceMatrix.MAX_ENTRIES) {
+            throw error("DIMENSION " + n + " is too large for EDGE_WEIGHT_FORMAT " + edgeWeightFormat);
+        }
+        return (int) entries;
+    }
+
+    private IOException error(String message) {
+        return new IOException(file + ":" + line + ": " + message);
+    }
+
+    /**
+     * @return Next byte of the file without consuming it, or -1 at the end of the file
+     */
+    private int peek() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0) {
+                return -1;
+            }
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    private void skip() {
+        if (buffer.get() == '\n') {
+            line++;
+        }
+    }
+
+    private static boolean isBlank(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    /**
+     * Reads the next run of non-blank bytes into {@link #token}, up to a colon if requested.
+     *
+     * @return Whether a token was found before the end of the file
+     */
+    private boolean nextToken(boolean stopAtColon) throws IOException {
+        int c;
+        while (isBlank(c = peek())) {
+            skip();
+        }
+        token.setLength(0);
+        while (c >= 0 && !isBlank(c) && !(stopAtColon && c == ':')) {
+            token.append((char) c);
+            skip();
+            c = peek();
+        }
+        return token.length() > 0;
+    }
+
+    /**
+     * @return Next keyword, which ends at a blank or a colon, or null at the end of the file
+     */
+    private String nextKeyword() throws IOException {
+        return nextToken(true) ? token.toString() : null;
+    }
+
+    /**
+     * @return Rest of a header line after the colon, trimmed
+     */
+    private String headerValue() throws IOException {
+        token.setLength(0);
+        int c;
+        while ((c = peek()) >= 0 && c != '\n') {
+            token.append((char) c);
+            skip();
+        }
+        String value = token.toString().trim();
+        return value.startsWith(":") ? value.substring(1).trim() : value;
+    }
+
+    private int nextInt() throws IOException {
+        double value = nextDouble();
+        if (value != (int) value) {
+            throw error("Expected an integer weight, found " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses the next number, in decimal or scientific notation. Numbers of up to 15 significant
+     * digits and a decimal exponent within 22 are computed with a single rounding, which gives the
+     * same value as {@link Double#parseDouble(String)}; other numbers fall back to it.
+     */
+    private double nextDouble() throws IOException {
+        if (!nextToken(false)) {
+            throw error("Unexpected end of file");
+        }
+        int length = token.length();
+        int i = 0;
+        boolean negative = token.charAt(0) == '-';
+        if (negative || token.charAt(0) == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        boolean any = false;
+        for (; i < length; i++) {
+            char c = token.charAt(i);
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (i < length && any && (token.charAt(i) == 'e' || token.charAt(i) == 'E')) {
+            int written = 0;
+            int first = ++i;
+            boolean negativeExponent = i < length && token.charAt(i) == '-';
+            if (i < length && (token.charAt(i) == '-' || token.charAt(i) == '+')) {
+                first = ++i;
+            }
+            for (; i < length && token.charAt(i) >= '0' && token.charAt(i) <= '9' && written < 1000; i++) {
+                written = written * 10 + (token.charAt(i) - '0');
+            }
+            exponent += negativeExponent ? -written : written;
+            any = i > first;
+        }
+        if (!any || i < length) {
+            throw error("Expected a number, found " + token);
+        }
+        if (digits > MAX_EXACT_DIGITS || Math.abs(exponent) >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(token.toString());
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+}
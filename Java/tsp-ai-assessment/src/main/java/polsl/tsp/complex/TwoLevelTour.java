@@ -0,0 +1,293 @@
+package polsl.tsp.complex;
+
+/**
+ * {@link Tour} as a two-level doubly-linked list: the cities are grouped into segments of about
+ * sqrt(n) consecutive cities, and the segments form a cyclic list. Each segment has a reversal bit
+ * that tells whether its cities are read against their own links. A city carries a sequence number
+ * within its segment and a segment its rank within the list, so order queries compare two numbers.
+ * <p>
+ * A reversal of a path within one segment relinks its cities. Any other path is first aligned to
+ * segment boundaries by splitting the segments at its ends, moving the smaller part of a segment
+ * into a new one; the segments of the path, or of the rest of the tour if that has fewer, are
+ * then relinked in reverse order with their bits flipped. Both take O(sqrt n). Splits add
+ * segments, and once the segments are used up the list is rebuilt from the tour in O(n), which
+ * happens only every O(sqrt n) reversals.
+ * <p>
+ * Everything is held in primitive arrays indexed by city and by segment.
+ */
+public final class TwoLevelTour implements Tour {
+
+    private final int n;
+    private final int groupSize;
+
+    // Per city: segment, sequence number and links in the segment's own direction (-1 at its ends).
+    private final int[] parent;
+    private final int[] sequence;
+    private final int[] nextCity;
+    private final int[] previousCity;
+
+    // Per segment: reversal bit, own first and last city, neighbours and rank in the list.
+    private final boolean[] reversed;
+    private final int[] first;
+    private final int[] last;
+    private final int[] nextSegment;
+    private final int[] previousSegment;
+    private final int[] rank;
+    private int segments;
+
+    private final int[] buffer;
+
+    /**
+     * @param order Cities in tour order, each once
+     */
+    public TwoLevelTour(int[] order) {
+        this.n = order.length;
+        this.groupSize = Math.max(8, (int) Math.sqrt(n));
+        int capacity = 2 * ((n + groupSize - 1) / groupSize) + 4;
+        this.parent = new int[n];
+        this.sequence = new int[n];
+        this.nextCity = new int[n];
+        this.previousCity = new int[n];
+        this.reversed = new boolean[capacity];
+        this.first = new int[capacity];
+        this.last = new int[capacity];
+        this.nextSegment = new int[capacity];
+        this.previousSegment = new int[capacity];
+        this.rank = new int[capacity];
+        this.buffer = new int[Math.max(n, capacity)];
+        build(order);
+    }
+
+    /**
+     * Splits the tour into segments of {@link #groupSize} cities.
+     */
+    private void build(int[] order) {
+        segments = (n + groupSize - 1) / groupSize;
+        for (int segment = 0; segment < segments; segment++) {
+            int from = segment * groupSize;
+            int to = Math.min(n, from + groupSize) - 1;
+            reversed[segment] = false;
+            first[segment] = order[from];
+            last[segment] = order[to];
+            nextSegment[segment] = segment + 1 == segments ? 0 : segment + 1;
+            previousSegment[segment] = segment == 0 ? segments - 1 : segment - 1;
+            rank[segment] = segment;
+            for (int i = from; i <= to; i++) {
+                int city = order[i];
+                parent[city] = segment;
+                sequence[city] = i - from;
+                nextCity[city] = i == to ? -1 : order[i + 1];
+                previousCity[city] = i == from ? -1 : order[i - 1];
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int next(int city) {
+        int segment = parent[city];
+        int other = reversed[segment] ? previousCity[city] : nextCity[city];
+        return other >= 0 ? other : head(nextSegment[segment]);
+    }
+
+    @Override
+    public int previous(int city) {
+        int segment = parent[city];
+        int other = reversed[segment] ? nextCity[city] : previousCity[city];
+        return other >= 0 ? other : tail(previousSegment[segment]);
+    }
+
+    private int head(int segment) {
+        return reversed[segment] ? last[segment] : first[segment];
+    }
+
+    private int tail(int segment) {
+        return reversed[segment] ? first[segment] : last[segment];
+    }
+
+    /**
+     * @return Order of the city along the tour from the segment of rank 0
+     */
+    private long key(int city) {
+        int segment = parent[city];
+        return ((long) rank[segment] << 32) + (reversed[segment] ? -sequence[city] : sequence[city]);
+    }
+
+    @Override
+    public boolean between(int a, int b, int c) {
+        long keyA = key(a);
+        long keyB = key(b);
+        long keyC = key(c);
+        if (keyA <= keyC) {
+            return keyA <= keyB && keyB <= keyC;
+        }
+        return keyB >= keyA || keyB <= keyC;
+    }
+
+    @Override
+    public void reverse(int from, int to) {
+        if (from == to || next(to) == from) {
+            // A single city, or the whole tour, which gives the same cycle.
+            return;
+        }
+        if (parent[from] == parent[to]) {
+            if (key(from) <= key(to)) {
+                reverseWithin(from, to);
+            } else {
+                // The path leaves the segment and comes back; the rest of the tour lies inside it.
+                reverseWithin(next(to), previous(from));
+            }
+            return;
+        }
+        if (segments + 2 > reversed.length) {
+            build(toArray());
+        }
+        makeHead(from);
+        makeHead(next(to));
+        int firstSegment = parent[from];
+        int lastSegment = parent[to];
+        int count = rank[lastSegment] - rank[firstSegment];
+        count = (count < 0 ? count + segments : count) + 1;
+        if (count == segments) {
+            return;
+        }
+        if (2 * count > segments) {
+            int swapped = firstSegment;
+            firstSegment = nextSegment[lastSegment];
+            lastSegment = previousSegment[swapped];
+            count = segments - count;
+        }
+        reverseSegments(firstSegment, lastSegment, count);
+    }
+
+    /**
+     * Reverses a path that lies within one segment by relinking its cities.
+     */
+    private void reverseWithin(int from, int to) {
+        int segment = parent[from];
+        // The same path in the segment's own direction.
+        int start = reversed[segment] ? to : from;
+        int end = reversed[segment] ? from : to;
+        int count = 0;
+        for (int city = start; city != end; city = nextCity[city]) {
+            buffer[count++] = city;
+        }
+        buffer[count++] = end;
+
+        int before = previousCity[start];
+        int after = nextCity[end];
+        int base = sequence[start];
+        for (int i = 0; i < count; i++) {
+            int city = buffer[count - 1 - i];
+            sequence[city] = base + i;
+            previousCity[city] = i == 0 ? before : buffer[count - i];
+            nextCity[city] = i == count - 1 ? after : buffer[count - 2 - i];
+        }
+        if (before >= 0) {
+            nextCity[before] = end;
+        } else {
+            first[segment] = end;
+        }
+        if (after >= 0) {
+            previousCity[after] = start;
+        } else {
+            last[segment] = start;
+        }
+    }
+
+    /**
+     * Splits the segment of a city, if needed, so that the city is the first one of its segment
+     * along the tour. The smaller part moves to a new segment, keeping its links and direction.
+     */
+    private void makeHead(int city) {
+        int segment = parent[city];
+        if (head(segment) == city) {
+            return;
+        }
+        // Own links are cut between left and right; the part before the city along the tour is
+        // the left one unless the segment is reversed.
+        int left = reversed[segment] ? city : previousCity[city];
+        int right = nextCity[left];
+        int leftSize = sequence[left] - sequence[first[segment]] + 1;
+        int rightSize = sequence[last[segment]] - sequence[right] + 1;
+
+        int added = segments++;
+        reversed[added] = reversed[segment];
+        nextCity[left] = -1;
+        previousCity[right] = -1;
+        boolean leftMoves = leftSize <= rightSize;
+        if (leftMoves) {
+            first[added] = first[segment];
+            last[added] = left;
+            first[segment] = right;
+        } else {
+            first[added] = right;
+            last[added] = last[segment];
+            last[segment] = left;
+        }
+        for (int moved = first[added]; moved >= 0; moved = nextCity[moved]) {
+            parent[moved] = added;
+        }
+        // The left part comes first along the tour unless the segment is reversed.
+        if (leftMoves != reversed[segment]) {
+            insertAfter(previousSegment[segment], added);
+        } else {
+            insertAfter(segment, added);
+        }
+    }
+
+    /**
+     * Links a new segment into the list after another one and renumbers the ranks after it.
+     */
+    private void insertAfter(int segment, int added) {
+        int following = nextSegment[segment];
+        nextSegment[segment] = added;
+        previousSegment[added] = segment;
+        nextSegment[added] = following;
+        previousSegment[following] = added;
+        rank[added] = rank[segment] + 1;
+        for (int other = following; rank[other] != 0; other = nextSegment[other]) {
+            rank[other] = rank[previousSegment[other]] + 1;
+        }
+    }
+
+    /**
+     * Reverses a run of whole segments: relinks them in reverse order, keeping the ranks of the
+     * positions, and flips their bits.
+     */
+    private void reverseSegments(int firstSegment, int lastSegment, int count) {
+        int before = previousSegment[firstSegment];
+        int after = nextSegment[lastSegment];
+        int segment = firstSegment;
+        for (int i = 0; i < count; i++) {
+            buffer[i] = segment;
+            segment = nextSegment[segment];
+        }
+        int firstRank = rank[firstSegment];
+        for (int i = 0; i < count; i++) {
+            segment = buffer[count - 1 - i];
+            int position = firstRank + i;
+            rank[segment] = position >= segments ? position - segments : position;
+            reversed[segment] = !reversed[segment];
+            previousSegment[segment] = i == 0 ? before : buffer[count - i];
+            nextSegment[segment] = i == count - 1 ? after : buffer[count - 2 - i];
+        }
+        nextSegment[before] = lastSegment;
+        previousSegment[after] = firstSegment;
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] order = new int[n];
+        int city = 0;
+        for (int i = 0; i < n; i++) {
+            order[i] = city;
+            city = next(city);
+        }
+        return order;
+    }
+}
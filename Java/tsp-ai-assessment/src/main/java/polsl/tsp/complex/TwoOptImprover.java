@@ -0,0 +1,168 @@
+package polsl.tsp.complex;
+
+/**
+ * 2-opt local search: replaces two edges of the tour by the two edges that reconnect it the other
+ * way, reversing the segment between them, until no such move shortens the tour.
+ * <p>
+ * A move is scored in O(1) from the two removed and the two added edges. Only moves that connect
+ * a city to one of its {@link CandidateLists candidates} are tried, and the candidates of a city
+ * are scanned by increasing cost until the new edge is no cheaper than the removed one, since no
+ * later candidate can make the move pay. Cities whose tour neighbours did not change since they
+ * were last looked at are skipped ("don't look bits"): a queue holds the cities to look at, and a
+ * move queues the four cities at its ends. The segment is reversed in a {@link Tour} suited to
+ * the number of cities.
+ * <p>
+ * Reversing a segment changes the cost of its edges on an asymmetric matrix, where a move can no
+ * longer be scored in O(1), so tours of asymmetric matrices are returned unchanged; {@link
+ * OrOptImprover} keeps the direction of travel.
+ */
+public class TwoOptImprover implements TourImprover {
+
+    private static final int NEIGHBOURS = 10;
+
+    /**
+     * 2-opt makes few reversals per query, so the flat array stays faster up to a few hundred
+     * thousand cities.
+     */
+    private static final int TWO_LEVEL_FROM = 200_000;
+
+    private final int neighbours;
+
+    public TwoOptImprover() {
+        this(NEIGHBOURS);
+    }
+
+    /**
+     * @param neighbours Length of the candidate list of each city
+     */
+    public TwoOptImprover(int neighbours) {
+        if (neighbours < 1) {
+            throw new IllegalArgumentException("Number of neighbours must be positive");
+        }
+        this.neighbours = neighbours;
+    }
+
+    @Override
+    public TspResult improve(DistanceMatrix graph, TspResult tour) {
+        int[] order = Tours.open(graph, tour);
+        if (order.length >= 5 && graph.isSymmetric()) {
+            Tour improved = Tour.of(order, TWO_LEVEL_FROM);
+            new Search(graph, CandidateLists.nearest(graph, neighbours), improved).run();
+            order = improved.toArray();
+        }
+        return Tours.close(graph, order);
+    }
+
+    /**
+     * State of one run over a tour, which it rearranges.
+     */
+    private static final class Search {
+        private final DistanceMatrix graph;
+        private final CandidateLists candidates;
+        private final int n;
+        private final Tour tour;
+        private final int[] queue;
+        private final boolean[] queued;
+        private int queueHead;
+        private int queueSize;
+
+        Search(DistanceMatrix graph, CandidateLists candidates, Tour tour) {
+            this.graph = graph;
+            this.candidates = candidates;
+            this.n = tour.size();
+            this.tour = tour;
+            this.queue = new int[n];
+            this.queued = new boolean[n];
+            for (int i = 0, city = 0; i < n; i++, city = tour.next(city)) {
+                push(city);
+            }
+        }
+
+        void run() {
+            while (queueSize > 0) {
+                int city = queue[queueHead];
+                queueHead = queueHead + 1 == n ? 0 : queueHead + 1;
+                queueSize--;
+                queued[city] = false;
+                if (improveCity(city)) {
+                    push(city);
+                }
+            }
+        }
+
+        private void push(int city) {
+            if (!queued[city]) {
+                queued[city] = true;
+                int tail = queueHead + queueSize;
+                queue[tail >= n ? tail - n : tail] = city;
+                queueSize++;
+            }
+        }
+
+        private int next(int city) {
+            return tour.next(city);
+        }
+
+        private int previous(int city) {
+            return tour.previous(city);
+        }
+
+        /**
+         * Applies the best move that replaces an edge {@code (a, b)} at city {@code a} by an edge
+         * {@code (a, c)} to a candidate {@code c}, and the edge {@code (c, d)} on the same side of
+         * {@code c} by {@code (b, d)}.
+         *
+         * @return Whether a move was applied
+         */
+        private boolean improveCity(int a) {
+            int bestGain = 0;
+            int bestC = -1;
+            boolean bestForward = true;
+            for (int side = 0; side < 2; side++) {
+                boolean forward = side == 0;
+                int b = forward ? next(a) : previous(a);
+                int removed = graph.get(a, b);
+                int count = candidates.count(a);
+                for (int rank = 0; rank < count; rank++) {
+                    int c = candidates.get(a, rank);
+                    int partial = removed - graph.get(a, c);
+                    if (partial <= 0) {
+                        break;
+                    }
+                    int d = forward ? next(c) : previous(c);
+                    if (c == b || d == a) {
+                        continue;
+                    }
+                    int gain = partial + graph.get(c, d) - graph.get(b, d);
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        bestC = c;
+                        bestForward = forward;
+                    }
+                }
+            }
+            if (bestC < 0) {
+                return false;
+            }
+
+            int c = bestC;
+            int b;
+            int d;
+            if (bestForward) {
+                // a b ... c d becomes a c ... b d.
+                b = next(a);
+                d = next(c);
+                tour.reverse(b, c);
+            } else {
+                // d c ... b a becomes d b ... c a.
+                b = previous(a);
+                d = previous(c);
+                tour.reverse(c, b);
+            }
+            push(b);
+            push(c);
+            push(d);
+            return true;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package polsl.tsp;
 
 import polsl.tsp.complex.TspResult;
 
+import java.util.Random;
+
 public class GraphUtils {
 
     /**
@@ -60,7 +62,7 @@ public class GraphUtils {
                 {11, 12, 14, 10, 9, 7, 9, 11, 13, 6, 5, 7, 10, 3, 0}
         };
 
-        int[] optimalPath = {0, 4, 5, 9, 10, 13, 14, 12, 11, 6, 2, 3, 7, 8, 1, 0}; // might be wrong
+        int[] optimalPath = {0, 4, 10, 13, 14, 11, 12, 9, 5, 8, 7, 3, 2, 6, 1, 0}; // verified with Held-Karp
         int cost = calculatePathCost(graph, optimalPath);
 
         return new SampleTspData(graph, new TspResult(optimalPath, cost));
@@ -104,6 +106,23 @@ public class GraphUtils {
         return true;
     }
 
+    // Random costs in 1..maxCost, mirrored if symmetric
+    public static int[][] getRandomGraph(int n, int maxCost, long seed, boolean symmetric) {
+        Random random = new Random(seed);
+        int[][] graph = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = symmetric ? i + 1 : 0; j < n; j++) {
+                if (i != j) {
+                    graph[i][j] = 1 + random.nextInt(maxCost);
+                    if (symmetric) {
+                        graph[j][i] = graph[i][j];
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
     // Calculate path cost
     public static int calculatePathCost(int[][] graph, int[] path) {
         int cost = 0;
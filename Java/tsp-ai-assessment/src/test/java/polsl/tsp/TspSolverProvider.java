@@ -4,13 +4,14 @@ import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsProvider;
 
+import java.nio.file.Files;
 import java.util.stream.Stream;
 
 import polsl.tsp.complex.*;
 
 public class TspSolverProvider implements ArgumentsProvider {
     @Override
-    public Stream<? extends Arguments> provideArguments(ExtensionContext context) {
+    public Stream<? extends Arguments> provideArguments(ExtensionContext context) throws Exception {
         return Stream.of(
                 Arguments.of("ChatGPT", new ComplexChatGptSolution()),
                 Arguments.of("MS Copilot", new ComplexMsCopilotSolution()),
@@ -19,7 +20,16 @@ public class TspSolverProvider implements ArgumentsProvider {
                 Arguments.of("DeepSeek BruteForce", new ComplexDeepSeekBruteForceSolution()),
                 Arguments.of("DeepSeek Nearest Neighbour", new ComplexDeepSeekNNSolution()),
                 Arguments.of("Google Gemini", new ComplexGeminiSolution()),
-                Arguments.of("Tabnine", new ComplexTabnineSolution())
+                Arguments.of("Tabnine", new ComplexTabnineSolution()),
+                Arguments.of("Held-Karp", new HeldKarpSolution()),
+                Arguments.of("Held-Karp Parallel", new HeldKarpSolution(4)),
+                Arguments.of("Held-Karp Out-of-core", new OutOfCoreHeldKarpSolution(Files.createTempDirectory("held-karp"))),
+                Arguments.of("Branch and Bound", new BranchAndBoundSolution()),
+                Arguments.of("Branch and Bound Best-First", new BranchAndBoundSolution(BranchAndBoundSolution.SearchStrategy.BEST_FIRST, 10_000)),
+                Arguments.of("Branch and Bound Parallel", new ParallelBranchAndBoundSolution(4)),
+                Arguments.of("Brute Force Parallel", new ParallelBruteForceSolution(4)),
+                Arguments.of("Prefix Enumeration", new PrefixEnumerationSolution()),
+                Arguments.of("Cutting Plane", new CuttingPlaneSolution())
                 // Add more solvers here
         );
     }
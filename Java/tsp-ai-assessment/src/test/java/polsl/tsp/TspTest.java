@@ -1,15 +1,58 @@
 package polsl.tsp;
 
 import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ArgumentsSource;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import polsl.tsp.complex.ArrayTour;
+import polsl.tsp.complex.BranchAndBoundSolution;
+import polsl.tsp.complex.CandidateLists;
+import polsl.tsp.complex.ComplexDeepSeekNNSolution;
+import polsl.tsp.complex.CoordinateDistanceMatrix;
+import polsl.tsp.complex.CuttingPlaneSolution;
+import polsl.tsp.complex.DistanceMatrix;
+import polsl.tsp.complex.FastNearestNeighbourSolution;
+import polsl.tsp.complex.GeneticAlgorithmSolution;
+import polsl.tsp.complex.HeldKarpSolution;
+import polsl.tsp.complex.KdTree;
+import polsl.tsp.complex.LinKernighanSolution;
+import polsl.tsp.complex.LocalSearchSolution;
+import polsl.tsp.complex.MappedDistanceMatrix;
+import polsl.tsp.complex.MultiStartNearestNeighbourSolution;
+import polsl.tsp.complex.OrOptImprover;
+import polsl.tsp.complex.OutOfCoreHeldKarpSolution;
+import polsl.tsp.complex.ParallelBranchAndBoundSolution;
+import polsl.tsp.complex.PermutationCursor;
+import polsl.tsp.complex.Tour;
 import polsl.tsp.complex.TspAlgorithm;
 import polsl.tsp.complex.TspResult;
+import polsl.tsp.complex.TsplibReader;
+import polsl.tsp.complex.TwoLevelTour;
+import polsl.tsp.complex.TwoOptImprover;
 
 public class TspTest {
 
+    private static final int SAMPLE_COST = GraphUtils.getSampleGraph10x10().getExpectedResult().getCost();
+
+    // 3x3 grid with a spacing of 10: eight unit steps and one diagonal of 14.
+    private static final double[] GRID_X = {0, 10, 20, 0, 10, 20, 0, 10, 20};
+    private static final double[] GRID_Y = {0, 0, 0, 10, 10, 10, 20, 20, 20};
+    private static final int GRID_COST = 94;
+
     @ParameterizedTest(name = "[{0}] testTSPSolution")
     @ArgumentsSource(TspSolverProvider.class)
     public void testTSPSolution4x4(String solverName, TspAlgorithm solver) {
@@ -78,6 +121,569 @@ public class TspTest {
         assertEquals(expected.getCost(), actual.getCost(), solverName + ": Incorrect cost!");
     }
 
+    @ParameterizedTest(name = "[{0}] testTSPSolution")
+    @ArgumentsSource(TspSolverProvider.class)
+    public void testTSPSolutionDistanceMatrix(String solverName, TspAlgorithm solver) throws IOException {
+        assertSolves(solverName, solver, () -> DistanceMatrix.of(sampleGraph()), SAMPLE_COST);
+    }
+
+    @ParameterizedTest(name = "[{0}] testTSPSolution")
+    @ArgumentsSource(TspSolverProvider.class)
+    public void testTSPSolutionTriangularMatrix(String solverName, TspAlgorithm solver) throws IOException {
+        assertSolves(solverName, solver, () -> DistanceMatrix.of(sampleGraph(), true), SAMPLE_COST);
+    }
+
+    @ParameterizedTest(name = "[{0}] testTSPSolution")
+    @ArgumentsSource(TspSolverProvider.class)
+    public void testTSPSolutionMappedMatrix(String solverName, TspAlgorithm solver) throws IOException {
+        assertSolves(solverName, solver, () -> MappedDistanceMatrix.open(writeMapped(DistanceMatrix.of(sampleGraph()))), SAMPLE_COST);
+    }
+
+    @ParameterizedTest(name = "[{0}] testTSPSolution")
+    @ArgumentsSource(TspSolverProvider.class)
+    public void testTSPSolutionTsplibFile(String solverName, TspAlgorithm solver) throws IOException {
+        assertSolves(solverName, solver, () -> TsplibReader.read(writeTsplib(sampleGraph())), SAMPLE_COST);
+    }
+
+    @ParameterizedTest(name = "[{0}] testTSPSolution")
+    @ArgumentsSource(TspSolverProvider.class)
+    public void testTSPSolutionCoordinateMatrix(String solverName, TspAlgorithm solver) throws IOException {
+        assertSolves(solverName, solver, () -> new CoordinateDistanceMatrix(GRID_X, GRID_Y, CoordinateDistanceMatrix.Metric.EUC_2D, 2), GRID_COST);
+    }
+
+    @ParameterizedTest(name = "[{0}] testTSPSolution")
+    @ArgumentsSource(TspSolverProvider.class)
+    public void testTSPSolutionBuiltMatrix(String solverName, TspAlgorithm solver) throws IOException {
+        assertSolves(solverName, solver, () -> DistanceMatrix.of(gridMatrix(), 2), GRID_COST);
+    }
+
+    @ParameterizedTest(name = "[{0}] testTSPSolution")
+    @ArgumentsSource(TspSolverProvider.class)
+    public void testTSPSolutionCoordinateFile(String solverName, TspAlgorithm solver) throws IOException {
+        assertSolves(solverName, solver, () -> MappedDistanceMatrix.load(writeMapped(gridMatrix())), GRID_COST);
+    }
+
+    @ParameterizedTest(name = "[{0}] testTSPSolution")
+    @ArgumentsSource(TspSolverProvider.class)
+    public void testTSPSolutionScaledCosts(String solverName, TspAlgorithm solver) throws IOException {
+        assertSolves(solverName, solver, () -> DistanceMatrix.of(scaledSampleGraph()),
+                sampleGraph().length * 1_000_000 + 1000 * SAMPLE_COST);
+    }
+
+    /**
+     * Source of the matrix of a test, which may have to read or write a file.
+     */
+    @FunctionalInterface
+    private interface MatrixSupplier {
+        DistanceMatrix get() throws IOException;
+    }
+
+    /**
+     * Solves the supplied matrix and checks that the solver returns a valid tour of the given cost.
+     */
+    private static void assertSolves(String solverName, TspAlgorithm solver, MatrixSupplier supplier, int expectedCost) throws IOException {
+        DistanceMatrix graph = supplier.get();
+
+        TspResult actual = solver.solveTSP(graph);
+
+        assertTrue(GraphUtils.validatePath(actual.getPath(), graph.size()), solverName + ": Invalid path!");
+        assertEquals(expectedCost, actual.getCost(), solverName + ": Incorrect cost!");
+    }
+
+    private static int[][] sampleGraph() {
+        return GraphUtils.getSampleGraph10x10().getGraph();
+    }
+
+    /**
+     * @return The 10x10 sample with every cost c replaced by 1 000 000 + 1000 c, which only a
+     * scaled 16-bit code stores compactly
+     */
+    private static int[][] scaledSampleGraph() {
+        int[][] graph = sampleGraph();
+        for (int[] row : graph) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = 1_000_000 + 1000 * row[j];
+            }
+        }
+        return graph;
+    }
+
+    private static CoordinateDistanceMatrix gridMatrix() {
+        return new CoordinateDistanceMatrix(GRID_X, GRID_Y, CoordinateDistanceMatrix.Metric.EUC_2D);
+    }
+
+    private static Path writeMapped(DistanceMatrix graph) throws IOException {
+        Path file = Files.createTempFile("distances", ".bin");
+        file.toFile().deleteOnExit();
+        MappedDistanceMatrix.write(graph, file);
+        return file;
+    }
+
+    private static Path writeTsplib(int[][] graph) throws IOException {
+        return writeTsplib(graph, "FULL_MATRIX");
+    }
+
+    private static Path writeTsplib(int[][] graph, String format) throws IOException {
+        StringBuilder text = new StringBuilder("NAME: sample10\nTYPE: ATSP\nDIMENSION: " + graph.length
+                + "\nEDGE_WEIGHT_TYPE: EXPLICIT\nEDGE_WEIGHT_FORMAT: " + format + "\nEDGE_WEIGHT_SECTION\n");
+        for (int i = 0; i < graph.length; i++) {
+            int from = format.equals("UPPER_ROW") ? i + 1 : 0;
+            int to = format.equals("LOWER_DIAG_ROW") ? i + 1 : graph.length;
+            for (int j = from; j < to; j++) {
+                text.append(' ').append(graph[i][j]);
+            }
+            text.append('\n');
+        }
+        text.append("EOF\n");
+        Path file = Files.createTempFile("sample10", ".atsp");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, text);
+        return file;
+    }
+
+    @Test
+    public void testTsplibTriangularFormats() throws IOException {
+        int[][] narrow = GraphUtils.getRandomGraph(12, 100, 5, true);
+        int[][] wide = GraphUtils.getRandomGraph(12, 100_000_000, 5, true);
+        for (int[][] graph : new int[][][]{narrow, wide}) {
+            for (String format : new String[]{"UPPER_ROW", "LOWER_DIAG_ROW"}) {
+                DistanceMatrix matrix = TsplibReader.read(writeTsplib(graph, format));
+                assertTrue(matrix.isSymmetric(), "Triangular format read as asymmetric!");
+                assertArrayEquals(graph, matrix.toArray(), "Incorrect costs in " + format + "!");
+            }
+        }
+    }
+
+    @Test
+    public void testScaledCostsWithWideStep() throws IOException {
+        // The only difference, 4 000 000 000, does not fit in an int step.
+        int[][] graph = {
+                {-2_000_000_000, 2_000_000_000},
+                {2_000_000_000, -2_000_000_000}
+        };
+        Path file = Files.createTempFile("distances", ".bin");
+        file.toFile().deleteOnExit();
+        MappedDistanceMatrix.write(DistanceMatrix.of(graph), file);
+
+        assertArrayEquals(graph, DistanceMatrix.of(graph).toArray(), "Incorrect costs!");
+        assertArrayEquals(graph, MappedDistanceMatrix.open(file).toArray(), "Incorrect mapped costs!");
+    }
+
+    @Test
+    public void testOutOfCoreHeldKarpResumesAfterInterruption() throws Exception {
+        int[][] graph = GraphUtils.getRandomGraph(20, 100, 3, false);
+        Path directory = Files.createTempDirectory("held-karp");
+        Path progress = directory.resolve("progress.bin");
+        OutOfCoreHeldKarpSolution solver = new OutOfCoreHeldKarpSolution(directory);
+        AtomicReference<IllegalStateException> interrupted = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                solver.solveTSP(graph);
+            } catch (IllegalStateException e) {
+                interrupted.set(e);
+            }
+        });
+
+        thread.start();
+        while (!Files.exists(progress) && thread.isAlive()) {
+            Thread.sleep(1);
+        }
+        thread.interrupt();
+        thread.join();
+        assertNotNull(interrupted.get(), "Search finished before it was interrupted!");
+        assertTrue(Files.exists(progress), "No finished layer was kept!");
+
+        TspResult actual = solver.solveTSP(graph);
+
+        assertTrue(GraphUtils.validatePath(actual.getPath(), graph.length), "Path is invalid!");
+        assertEquals(GraphUtils.calculatePathCost(graph, actual.getPath()), actual.getCost(), "Incorrect cost!");
+        assertEquals(new HeldKarpSolution().solveTSP(graph).getCost(), actual.getCost(), "Not optimal!");
+        assertFalse(Files.exists(progress), "Progress file was not removed!");
+    }
+
+    @Test
+    public void testBranchAndBoundBreaksTiesLexicographically() {
+        for (long seed = 1; seed <= 200; seed++) {
+            // Costs of 1..3 make many optimal tours, mirror images included on symmetric graphs.
+            int[][] graph = GraphUtils.getRandomGraph(4 + (int) (seed % 6), 3, seed, seed % 2 == 0);
+            int[] expected = lexicographicOptimum(graph);
+
+            for (BranchAndBoundSolution.SearchStrategy strategy : BranchAndBoundSolution.SearchStrategy.values()) {
+                TspResult actual = new BranchAndBoundSolution(strategy, 1_000).solveTSP(graph);
+                assertArrayEquals(expected, actual.getPath(), strategy + " did not return the smallest optimal tour!");
+            }
+        }
+    }
+
+    @Test
+    public void testParallelBranchAndBoundMatchesSequentialPaths() {
+        ParallelBranchAndBoundSolution parallel = new ParallelBranchAndBoundSolution(4);
+        for (long seed = 1; seed <= 40; seed++) {
+            int[][] graph = GraphUtils.getRandomGraph(8 + (int) (seed % 5), 3, seed, seed % 2 == 0);
+
+            TspResult expected = new BranchAndBoundSolution().solveTSP(graph);
+            TspResult actual = parallel.solveTSP(graph);
+
+            assertArrayEquals(expected.getPath(), actual.getPath(), "Different tour than the sequential solver!");
+            assertEquals(expected.getCost(), actual.getCost(), "Incorrect cost!");
+        }
+    }
+
+    /**
+     * @return Lexicographically smallest optimal tour, found by enumerating all of them in order
+     */
+    private static int[] lexicographicOptimum(int[][] graph) {
+        int n = graph.length;
+        PermutationCursor cursor = new PermutationCursor(1, n - 1);
+        int[] best = null;
+        int bestCost = Integer.MAX_VALUE;
+        do {
+            int[] path = new int[n + 1];
+            System.arraycopy(cursor.current(), 0, path, 1, n - 1);
+            int cost = GraphUtils.calculatePathCost(graph, path);
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = path;
+            }
+        } while (cursor.next());
+        return best;
+    }
+
+    @Test
+    public void testBranchAndBoundResumesFromCheckpoint() throws Exception {
+        Path file = Files.createTempDirectory("branch-and-bound").resolve("search.bin");
+        assertResumesFromCheckpoint(new BranchAndBoundSolution(BranchAndBoundSolution.SearchStrategy.DEPTH_FIRST, 1, file, 1), file);
+    }
+
+    @Test
+    public void testParallelBranchAndBoundResumesFromCheckpoint() throws Exception {
+        Path file = Files.createTempDirectory("parallel-branch-and-bound").resolve("search.bin");
+        assertResumesFromCheckpoint(new ParallelBranchAndBoundSolution(2, file, 1), file);
+    }
+
+    /**
+     * Interrupts a search once it has written a checkpoint and checks that solving again resumes
+     * it to the same tour as an uninterrupted search.
+     */
+    private static void assertResumesFromCheckpoint(TspAlgorithm solver, Path file) throws Exception {
+        // Costs of 1..3 tie often, which keeps the bounds weak and the search long.
+        int[][] graph = GraphUtils.getRandomGraph(17, 3, 2, false);
+        TspResult expected = new BranchAndBoundSolution().solveTSP(graph);
+        AtomicReference<IllegalStateException> interrupted = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                solver.solveTSP(graph);
+            } catch (IllegalStateException e) {
+                interrupted.set(e);
+            }
+        });
+
+        thread.start();
+        while (!Files.exists(file) && thread.isAlive()) {
+            Thread.sleep(1);
+        }
+        thread.interrupt();
+        thread.join();
+        assertNotNull(interrupted.get(), "Search finished before it was interrupted!");
+        assertTrue(Files.exists(file), "No checkpoint was written!");
+
+        TspResult actual = solver.solveTSP(graph);
+
+        assertArrayEquals(expected.getPath(), actual.getPath(), "Different tour after resuming!");
+        assertEquals(expected.getCost(), actual.getCost(), "Incorrect cost!");
+        assertFalse(Files.exists(file), "Checkpoint was not removed!");
+    }
+
+    @Test
+    public void testParallelBranchAndBoundCountsWorkerNodes() {
+        int[][] graph = GraphUtils.getRandomGraph(13, 100, 5, false);
+        ParallelBranchAndBoundSolution solver = new ParallelBranchAndBoundSolution(4);
+
+        TspResult actual = solver.solveTSP(graph);
+        long[] counts = solver.getWorkerNodeCounts();
+
+        assertEquals(new HeldKarpSolution().solveTSP(graph).getCost(), actual.getCost(), "Not optimal!");
+        assertTrue(counts.length > 0, "No worker counts!");
+        long total = 0;
+        for (long count : counts) {
+            assertTrue(count >= 0, "Negative node count!");
+            total += count;
+        }
+        assertTrue(solver.getNodeCount() > 0, "No nodes expanded!");
+        assertEquals(solver.getNodeCount(), total, "Worker counts do not add up to the node count!");
+    }
+
+    @Test
+    public void testFastNearestNeighbourMatchesNearestNeighbour() {
+        // A 6x6 grid with a spacing of 1 ties at almost every step.
+        double[] x = new double[36];
+        double[] y = new double[36];
+        for (int i = 0; i < 36; i++) {
+            x[i] = i % 6;
+            y[i] = i / 6;
+        }
+        DistanceMatrix[] graphs = {
+                DistanceMatrix.of(GraphUtils.getSampleGraph15x15().getGraph()),
+                new CoordinateDistanceMatrix(x, y, CoordinateDistanceMatrix.Metric.EUC_2D)
+        };
+
+        for (DistanceMatrix graph : graphs) {
+            TspResult expected = new ComplexDeepSeekNNSolution().solveTSP(graph);
+            TspResult actual = new FastNearestNeighbourSolution(3).solveTSP(graph);
+
+            assertArrayEquals(expected.getPath(), actual.getPath(), "Different tour!");
+            assertEquals(expected.getCost(), actual.getCost(), "Incorrect cost!");
+        }
+    }
+
+    @Test
+    public void testMultiStartNearestNeighbourKeepsBestStart() {
+        int[][] graph = GraphUtils.getSampleGraph15x15().getGraph();
+        TspResult single = new ComplexDeepSeekNNSolution().solveTSP(graph);
+        TspResult expected = new MultiStartNearestNeighbourSolution(1, 0).solveTSP(graph);
+
+        for (int parallelism = 1; parallelism <= 3; parallelism++) {
+            TspResult actual = new MultiStartNearestNeighbourSolution(parallelism, 0).solveTSP(graph);
+
+            assertTrue(GraphUtils.validatePath(actual.getPath(), graph.length), "Path is invalid!");
+            assertEquals(0, actual.getPath()[0], "Path does not start in city 0!");
+            assertEquals(GraphUtils.calculatePathCost(graph, actual.getPath()), actual.getCost(), "Incorrect cost!");
+            assertTrue(actual.getCost() <= single.getCost(), "Worse than a single start!");
+            assertArrayEquals(expected.getPath(), actual.getPath(), "Result depends on the parallelism!");
+        }
+    }
+
+    @Test
+    public void testTwoOptLeavesNoImprovingMove() {
+        int[][] graph = GraphUtils.getSampleGraph15x15().getGraph();
+        int n = graph.length;
+        TspResult initial = new ComplexDeepSeekNNSolution().solveTSP(graph);
+
+        // With complete candidate lists every 2-opt move is tried.
+        TspResult actual = new TwoOptImprover(n - 1).improve(DistanceMatrix.of(graph), initial);
+        int[] path = actual.getPath();
+
+        assertTrue(GraphUtils.validatePath(path, n), "Path is invalid!");
+        assertEquals(GraphUtils.calculatePathCost(graph, path), actual.getCost(), "Incorrect cost!");
+        assertTrue(actual.getCost() <= initial.getCost(), "Worse than the initial tour!");
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 2; j < n; j++) {
+                int delta = graph[path[i]][path[j]] + graph[path[i + 1]][path[j + 1]]
+                        - graph[path[i]][path[i + 1]] - graph[path[j]][path[j + 1]];
+                assertTrue(delta >= 0, "Improving move left between positions " + i + " and " + j);
+            }
+        }
+        assertEquals(actual.getCost(), new LocalSearchSolution(new ComplexDeepSeekNNSolution(), new TwoOptImprover(n - 1))
+                .solveTSP(graph).getCost(), "Local search differs from the improver!");
+    }
+
+    @Test
+    public void testOrOptImprovesAsymmetricGraph() {
+        // One-way surcharges on the 15x15 sample make the direction of travel matter.
+        int[][] graph = GraphUtils.getSampleGraph15x15().getGraph();
+        for (int i = 0; i < graph.length; i++) {
+            for (int j = i + 1; j < graph.length; j++) {
+                graph[i][j] += 20;
+            }
+        }
+        DistanceMatrix matrix = DistanceMatrix.of(graph);
+        TspResult initial = new ComplexDeepSeekNNSolution().solveTSP(matrix);
+
+        TspResult actual = new OrOptImprover().improve(matrix, initial);
+
+        assertTrue(GraphUtils.validatePath(actual.getPath(), graph.length), "Path is invalid!");
+        assertEquals(GraphUtils.calculatePathCost(graph, actual.getPath()), actual.getCost(), "Incorrect cost!");
+        assertTrue(actual.getCost() < initial.getCost(), "No improvement on the initial tour!");
+        assertEquals(initial.getCost(), new TwoOptImprover().improve(matrix, initial).getCost(),
+                "2-opt should leave asymmetric tours unchanged!");
+    }
+
+    @Test
+    public void testChainedLinKernighanFindsOptimum() {
+        GraphUtils.SampleTspData[] samples = {GraphUtils.getSampleGraph10x10(), GraphUtils.getSampleGraph15x15()};
+
+        for (GraphUtils.SampleTspData data : samples) {
+            int[][] graph = data.getGraph();
+            TspResult actual = new LinKernighanSolution(10, 50, 100).solveTSP(graph);
+
+            assertTrue(GraphUtils.validatePath(actual.getPath(), graph.length), "Path is invalid!");
+            assertEquals(GraphUtils.calculatePathCost(graph, actual.getPath()), actual.getCost(), "Incorrect cost!");
+            assertEquals(data.getExpectedResult().getCost(), actual.getCost(), "Not optimal!");
+        }
+    }
+
+    @Test
+    public void testCuttingPlaneSolvesAsymmetricGraphs() {
+        for (long seed = 1; seed <= 3; seed++) {
+            int[][] graph = GraphUtils.getRandomGraph(12, 100, seed, false);
+
+            TspResult actual = new CuttingPlaneSolution().solveTSP(graph);
+
+            assertTrue(GraphUtils.validatePath(actual.getPath(), graph.length), "Path is invalid!");
+            assertEquals(GraphUtils.calculatePathCost(graph, actual.getPath()), actual.getCost(), "Incorrect cost!");
+            assertEquals(new HeldKarpSolution().solveTSP(graph).getCost(), actual.getCost(), "Not optimal!");
+        }
+    }
+
+    @Test
+    public void testCuttingPlaneSeparatesSubtours() {
+        // Two clusters far apart: the degree constraints alone are met by one triangle in each.
+        int[][] graph = new int[6][6];
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 6; j++) {
+                graph[i][j] = i == j ? 0 : i / 3 == j / 3 ? 1 : 10;
+            }
+        }
+        CuttingPlaneSolution solver = new CuttingPlaneSolution();
+
+        TspResult actual = solver.solveTSP(graph);
+
+        assertTrue(GraphUtils.validatePath(actual.getPath(), graph.length), "Path is invalid!");
+        assertEquals(24, actual.getCost(), "Not optimal!");
+        assertEquals(1, solver.getNodeCount(), "Subtour cuts did not close the gap at the root!");
+    }
+
+    @Test
+    public void testGeneticAlgorithmIsReproducible() {
+        GraphUtils.SampleTspData data = GraphUtils.getSampleGraph10x10();
+        int[][] graph = data.getGraph();
+        TspResult expected = new GeneticAlgorithmSolution(4, 1, 50, 200, 7).solveTSP(graph);
+
+        for (int parallelism = 1; parallelism <= 3; parallelism++) {
+            TspResult actual = new GeneticAlgorithmSolution(4, parallelism, 50, 200, 7).solveTSP(graph);
+
+            assertTrue(GraphUtils.validatePath(actual.getPath(), graph.length), "Path is invalid!");
+            assertEquals(GraphUtils.calculatePathCost(graph, actual.getPath()), actual.getCost(), "Incorrect cost!");
+            assertEquals(data.getExpectedResult().getCost(), actual.getCost(), "Not optimal!");
+            assertArrayEquals(expected.getPath(), actual.getPath(), "Result depends on the parallelism!");
+        }
+    }
+
+    @Test
+    public void testKdTreeMatchesBruteForce() {
+        Random random = new Random(7);
+        int n = 300;
+        int k = 6;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble() * 1000;
+            y[i] = random.nextDouble() * 1000;
+        }
+        KdTree tree = new KdTree(x, y);
+        int[] found = new int[k];
+
+        for (int point = 0; point < n; point++) {
+            int count = tree.nearest(point, k, found);
+            assertArrayEquals(bruteForceNearest(x, y, point, -1, k), Arrays.copyOf(found, count), "Incorrect nearest neighbours!");
+            for (int quadrant = 0; quadrant < 4; quadrant++) {
+                count = tree.nearestInQuadrant(point, quadrant, k, found);
+                assertArrayEquals(bruteForceNearest(x, y, point, quadrant, k), Arrays.copyOf(found, count),
+                        "Incorrect neighbours in quadrant " + quadrant + "!");
+            }
+        }
+    }
+
+    @Test
+    public void testQuadrantCandidateListsMatchBruteForce() {
+        Random random = new Random(11);
+        int n = 300;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble() * 1000;
+            y[i] = random.nextDouble() * 1000;
+        }
+        CoordinateDistanceMatrix graph = new CoordinateDistanceMatrix(x, y, CoordinateDistanceMatrix.Metric.EUC_2D);
+        CandidateLists candidates = CandidateLists.quadrant(graph, 5, 2);
+
+        for (int city = 0; city < n; city++) {
+            Set<Integer> expected = new HashSet<>();
+            for (int neighbour : bruteForceNearest(x, y, city, -1, 5)) {
+                expected.add(neighbour);
+            }
+            for (int quadrant = 0; quadrant < 4; quadrant++) {
+                for (int neighbour : bruteForceNearest(x, y, city, quadrant, 2)) {
+                    expected.add(neighbour);
+                }
+            }
+            Set<Integer> actual = new HashSet<>();
+            for (int rank = 0; rank < candidates.count(city); rank++) {
+                actual.add(candidates.get(city, rank));
+                if (rank > 0) {
+                    assertTrue(graph.get(city, candidates.get(city, rank - 1)) <= graph.get(city, candidates.get(city, rank)),
+                            "Candidates are not sorted by cost!");
+                }
+            }
+            assertEquals(candidates.count(city), actual.size(), "Duplicate candidates!");
+            assertEquals(expected, actual, "Incorrect candidates!");
+        }
+    }
+
+    /**
+     * @param quadrant Quadrant as in {@link KdTree#nearestInQuadrant}, or -1 for all points
+     * @return Up to {@code k} points nearest to a point, nearest first, found by a full scan
+     */
+    private static int[] bruteForceNearest(double[] x, double[] y, int point, int quadrant, int k) {
+        List<Integer> others = new ArrayList<>();
+        for (int other = 0; other < x.length; other++) {
+            int position = (x[other] < x[point] ? 1 : 0) | (y[other] < y[point] ? 2 : 0);
+            if (other != point && (quadrant < 0 || position == quadrant)) {
+                others.add(other);
+            }
+        }
+        others.sort(Comparator.comparingDouble(other -> (x[other] - x[point]) * (x[other] - x[point])
+                + (y[other] - y[point]) * (y[other] - y[point])));
+        return others.stream().limit(k).mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void testTwoLevelTourMatchesArrayTour() {
+        Random random = new Random(1);
+        int n = 1000;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (i * 379) % n;
+        }
+        Tour expected = new ArrayTour(order);
+        Tour actual = new TwoLevelTour(order);
+
+        for (int step = 0; step < 2000; step++) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            // Both keep the same cycle, but either may have turned it around.
+            if (expected.next(from) == actual.next(from)) {
+                expected.reverse(from, to);
+            } else {
+                expected.reverse(to, from);
+            }
+            actual.reverse(from, to);
+            for (int city = 0; city < n; city++) {
+                int next = actual.next(city);
+                assertEquals(city, actual.previous(next), "Inconsistent links!");
+                assertTrue(next == expected.next(city) || next == expected.previous(city), "Different cycle!");
+            }
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            int c = random.nextInt(n);
+            assertEquals(reaches(actual, a, b, c), actual.between(a, b, c), "Incorrect order!");
+        }
+    }
+
+    /**
+     * @return Whether walking forward from {@code a} meets {@code b} no later than {@code c}
+     */
+    private static boolean reaches(Tour tour, int a, int b, int c) {
+        for (int city = a; ; city = tour.next(city)) {
+            if (city == b) {
+                return true;
+            }
+            if (city == c) {
+                return false;
+            }
+        }
+    }
+
     @ParameterizedTest(name = "[{0}] testInvalidGraph")
     @ArgumentsSource(TspSolverProvider.class)
     public void testAsymmetricalGraphWithExpectedResult(String solverName, TspAlgorithm solver) {
@@ -96,7 +702,7 @@ public class TspTest {
     @ParameterizedTest(name = "[{0}] testInvalidGraph")
     @ArgumentsSource(TspSolverProvider.class)
     public void testNullInput(String solverName, TspAlgorithm solver) {
-        assertThrows(IllegalArgumentException.class, () -> solver.solveTSP(null), solverName + ": Solver should throw on null input");
+        assertThrows(IllegalArgumentException.class, () -> solver.solveTSP((int[][]) null), solverName + ": Solver should throw on null input");
     }
 
     @ParameterizedTest(name = "[{0}] testInvalidGraph")
@@ -0,0 +1,58 @@
+package polsl.tsp.complex;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedSimplexTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testSolvesBoxedProgram() {
+        // min -x - 2y subject to x + y <= 4, 0 <= x, y <= 3.
+        BoundedSimplex lp = new BoundedSimplex();
+        int row = lp.addRow(4, 1, 0, 10);
+        int x = lp.addVariable(-1, 0, 3);
+        int y = lp.addVariable(-2, 0, 3);
+        lp.addEntry(row, x, 1);
+        lp.addEntry(row, y, 1);
+
+        assertTrue(lp.solve(), "Feasible program reported infeasible!");
+        assertEquals(1, lp.value(x), TOLERANCE, "Incorrect x!");
+        assertEquals(3, lp.value(y), TOLERANCE, "Incorrect y!");
+        assertEquals(-7, lp.objective(), TOLERANCE, "Incorrect objective!");
+    }
+
+    @Test
+    public void testWarmStartsAfterAddingRow() {
+        BoundedSimplex lp = new BoundedSimplex();
+        int row = lp.addRow(4, 1, 0, 10);
+        int x = lp.addVariable(-1, 0, 3);
+        int y = lp.addVariable(-2, 0, 3);
+        lp.addEntry(row, x, 1);
+        lp.addEntry(row, y, 1);
+        assertTrue(lp.solve(), "Feasible program reported infeasible!");
+
+        // Cuts off the optimum with y <= x.
+        int cut = lp.addRow(0, 1, 0, 10);
+        lp.addEntry(cut, x, -1);
+        lp.addEntry(cut, y, 1);
+
+        assertTrue(lp.solve(), "Feasible program reported infeasible!");
+        assertEquals(2, lp.value(x), TOLERANCE, "Incorrect x!");
+        assertEquals(2, lp.value(y), TOLERANCE, "Incorrect y!");
+        assertEquals(-6, lp.objective(), TOLERANCE, "Incorrect objective!");
+    }
+
+    @Test
+    public void testDetectsInfeasibleProgram() {
+        // x + s = 5 cannot hold with 0 <= x, s <= 1.
+        BoundedSimplex lp = new BoundedSimplex();
+        int row = lp.addRow(5, 1, 0, 1);
+        int x = lp.addVariable(1, 0, 1);
+        lp.addEntry(row, x, 1);
+
+        assertFalse(lp.solve(), "Infeasible program reported feasible!");
+        assertEquals(1, lp.farkasRay().length, "Incorrect ray length!");
+    }
+}